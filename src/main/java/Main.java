@@ -18,17 +18,32 @@
  */
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Random;
 
+import graph.EdgeDelta;
 import graph.Graph;
+import graph.VertexOrder;
+import helpers.MemoryPlanner;
 import helpers.Options;
+import helpers.PivotDistances;
 import helpers.StressCalculator;
+import helpers.StressFactory;
+import helpers.StressFactory.REORDER_STYLE;
+import helpers.TimePlanner;
+import io.DeltaReader;
 import io.GraphReader;
+import io.LayoutReader;
+import io.LayoutWriter;
+import layout.FocusLayout;
+import layout.MultiStartLayout;
+import layout.MultilevelLayout;
 import layout.PivMDS;
 import layout.SparseStressModel;
 
 public class Main {
 
 	public static void main(String[] args) throws IOException {
+		final long launch = System.nanoTime();
 		Options options = null;
 		PrintStream pW = System.err;
 		try {
@@ -50,6 +65,31 @@ public class Main {
 			Options.showHelp(pW);
 			return;
 		}
+		// the deadline of the iterations
+		long deadline = Long.MAX_VALUE;
+		if (options.hasMemoryBudget() || options.hasTimeBudget()) {
+			try {
+				final long[] size = GraphReader.readSize(options);
+				if (options.hasMemoryBudget()) {
+					final MemoryPlanner planner = new MemoryPlanner(size[0], size[1], options);
+					if (planner.fit(options.getMemoryBudget())) {
+						pW.println("memory budget: lowered to " + getPivotOptions(options));
+					}
+					pW.println(planner);
+				}
+				if (options.hasTimeBudget()) {
+					final TimePlanner planner = new TimePlanner(size[0], size[1], options);
+					if (planner.fit(options.getTimeBudget())) {
+						pW.println("time budget: lowered to " + getPivotOptions(options));
+					}
+					pW.println(planner);
+					deadline = launch + options.getTimeBudget() - planner.estimateFinish();
+				}
+			} catch (final IllegalArgumentException e) {
+				pW.println(e.getMessage());
+				return;
+			}
+		}
 		Graph g = null;
 		try {
 			g = GraphReader.readGraph(options);
@@ -65,21 +105,160 @@ public class Main {
 					+ "Please use less pivots or adapt the MSSP code.");
 			return;
 		}
+		// the existing layout, in the scale of the output, the focus, and the
+		// state and delta of the previous run
+		double[] layout = null;
+		int[] focus = null;
+		PivotDistances state = null;
+		EdgeDelta delta = null;
+		try {
+			if (options.getLayoutFile() != null) {
+				layout = LayoutReader.readLayout(options.getLayoutFile(), g.n());
+				for (int i = 0; i < layout.length; i++) {
+					layout[i] /= options.getFactor();
+				}
+			}
+			if (options.isFocused()) {
+				focus = LayoutReader.readVertices(options.getFocusFile(), g.n());
+			}
+			if (options.isIncremental()) {
+				for (final double coordinate : layout) {
+					if (Double.isNaN(coordinate)) {
+						throw new IllegalArgumentException("the layout does not cover all vertices");
+					}
+				}
+				state = PivotDistances.read(options.getStateFile(), g.n());
+				delta = DeltaReader.readDelta(options.getDeltaFile(), g.n(), options.isWeighted());
+			}
+		} catch (final IllegalArgumentException e) {
+			pW.println(e.getMessage());
+			return;
+		}
 		final long start = System.currentTimeMillis();
-		// calculate pivot mds layout
-		final double[] layout = new PivMDS().doLayout(g, options.getNumOfPivotsMDS());
-		// calculate sparse stress layout
-		new SparseStressModel().doLayout(g, layout, options);
+		// update the graph and the pivot distances by the delta
+		long numOfUpdates = 0;
+		if (delta != null) {
+			try {
+				final Graph updated = delta.apply(g);
+				numOfUpdates = state.update(g, updated, delta);
+				g = updated;
+			} catch (final IllegalArgumentException e) {
+				pW.println(e.getMessage());
+				return;
+			}
+		}
+		// the vertices in their new order, if relabeled
+		int[] order = null;
+		if (options.getReorderStyle() == REORDER_STYLE.BFS) {
+			order = VertexOrder.bfs(g);
+		} else if (options.getReorderStyle() == REORDER_STYLE.RCM) {
+			order = VertexOrder.rcm(g);
+		}
+		if (order != null) {
+			g = g.relabel(order);
+			if (layout != null) {
+				layout = VertexOrder.relabel(layout, order);
+			}
+		}
+		double sparseStress = Double.NaN;
+		MultiStartLayout multiStart = null;
+		FocusLayout focusLayout = null;
+		if (options.isFocused()) {
+			// lay out the focus region only, the others keep their position
+			focusLayout = new FocusLayout();
+			focusLayout.setDeadline(deadline);
+			try {
+				focusLayout.doLayout(g, layout, focus, options);
+			} catch (final IllegalArgumentException e) {
+				pW.println(e.getMessage());
+				return;
+			}
+			sparseStress = focusLayout.getSparseStress();
+		} else {
+			// calculate pivot mds layout, or a multilevel one, unless one is
+			// given to start from
+			if (layout == null) {
+				layout = options.isMultilevel() ? new MultilevelLayout().doLayout(g, options)
+						: new PivMDS().doLayout(g, options);
+			} else {
+				FocusLayout.placeMissing(g, layout, new Random(options.getSeed()));
+			}
+			if (options.getReorderStyle() == REORDER_STYLE.HILBERT) {
+				order = VertexOrder.hilbert(layout);
+				g = g.relabel(order);
+				layout = VertexOrder.relabel(layout, order);
+			}
+			// calculate sparse stress layout, or several and keep the best
+			if (options.getNumOfStarts() > 1) {
+				multiStart = new MultiStartLayout();
+				multiStart.setDeadline(deadline);
+				multiStart.setWarmStart(options.hasStartLayout());
+				multiStart.doLayout(g, layout, options);
+				sparseStress = multiStart.getSparseStress();
+			} else {
+				final SparseStressModel model = new SparseStressModel();
+				model.setDeadline(deadline);
+				model.setWarmStart(options.hasStartLayout());
+				if (options.hasState()) {
+					// the terms are built from the pivot distances kept for the next run
+					if (state == null) {
+						state = StressFactory.pivotDistances(g, options);
+					}
+					model.setStressData(state.createStressData(g, options));
+				}
+				model.doLayout(g, layout, options);
+				sparseStress = model.getSparseStress();
+			}
+		}
+		if (state != null) {
+			try {
+				state.write(options.getStateFile());
+			} catch (final IOException e) {
+				pW.println("state file cannot be written");
+			}
+		}
 		final double time = (System.currentTimeMillis() - start) / 1000d;
 		pW = System.out;
+		// write the layout in the order of the input
+		final int[] rank = order == null ? null : VertexOrder.invert(order);
 		for (int i = 0; i < g.n(); i++) {
-			pW.println(options.getFactor() * layout[i << 1] + "," + options.getFactor() * layout[(i << 1) + 1]);
+			final int index = rank == null ? i : rank[i];
+			pW.println(options.getFactor() * layout[index << 1] + "," + options.getFactor() * layout[(index << 1) + 1]);
+		}
+		if (options.getBinaryLayoutFile() != null) {
+			try {
+				LayoutWriter.writeBinaryLayout(options.getBinaryLayoutFile(),
+						rank == null ? layout : VertexOrder.relabel(layout, rank), options.getFactor());
+			} catch (final IOException e) {
+				System.err.println("binary layout cannot be written");
+			}
 		}
 		pW = System.err;
 		pW.println("time: " + time);
+		if (focusLayout != null) {
+			pW.println("focus: " + focusLayout.getNumOfActive() + " vertices laid out, "
+					+ focusLayout.getNumOfFrozen() + " frozen at the boundary");
+		}
+		if (delta != null) {
+			pW.println("incremental: " + delta.getNumOfDeleted() + " edges deleted, " + delta.getNumOfInserted()
+					+ " inserted, " + numOfUpdates + " distances of " + state.getPivots().length
+					+ " pivots updated");
+		}
+		if (multiStart != null) {
+			pW.println("best start: " + multiStart.getBestStart() + " (seed " + (options.getSeed()
+					+ multiStart.getBestStart()) + ", sampled stress " + multiStart.getSampledStress() + ")");
+		}
+		if (options.hasTimeBudget()) {
+			pW.println("sparse stress: " + sparseStress);
+		}
 		if (options.calcStress()) {
 			pW.println("optimally rescaled stress: " + StressCalculator.calcStress(g, layout));
 		}
 	}
 
+	private static String getPivotOptions(final Options options) {
+		return "-p " + options.getNumOfPiv() + " -m " + options.getNumOfPivotsMDS()
+				+ (options.getNumOfKMeansSources() > 0 ? " --features " + options.getNumOfKMeansSources() : "");
+	}
+
 }
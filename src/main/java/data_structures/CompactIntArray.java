@@ -0,0 +1,166 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of non-negative ints that stores its values in one or two
+ * bytes as long as they fit, and widens its storage automatically once a
+ * larger value is added.
+ */
+public final class CompactIntArray {
+
+	private byte[] m_bytes;
+
+	private char[] m_chars;
+
+	private int[] m_ints;
+
+	private int m_limit;
+
+	private int m_size;
+
+	/**
+	 * @param capacity
+	 *            the initial capacity
+	 * @param quantized
+	 *            whether to start with one byte per value, otherwise values
+	 *            are stored as ints right away
+	 */
+	public CompactIntArray(final int capacity, final boolean quantized) {
+		if (quantized) {
+			m_bytes = new byte[capacity];
+			m_limit = 0xFF;
+		} else {
+			m_ints = new int[capacity];
+			m_limit = Integer.MAX_VALUE;
+		}
+		m_size = 0;
+	}
+
+	public void add(final int val) {
+		if (val > m_limit) {
+			widen(val);
+		}
+		if (m_bytes != null) {
+			if (m_size == m_bytes.length) {
+				m_bytes = Arrays.copyOf(m_bytes, m_size << 1);
+			}
+			m_bytes[m_size] = (byte) val;
+		} else if (m_chars != null) {
+			if (m_size == m_chars.length) {
+				m_chars = Arrays.copyOf(m_chars, m_size << 1);
+			}
+			m_chars[m_size] = (char) val;
+		} else {
+			if (m_size == m_ints.length) {
+				m_ints = Arrays.copyOf(m_ints, m_size << 1);
+			}
+			m_ints[m_size] = val;
+		}
+		++m_size;
+	}
+
+	private void widen(final int val) {
+		final int capacity = Math.max(1, capacity());
+		if (val <= Character.MAX_VALUE) {
+			m_chars = new char[capacity];
+			for (int i = 0; i < m_size; i++) {
+				m_chars[i] = (char) get(i);
+			}
+			m_limit = Character.MAX_VALUE;
+		} else {
+			m_ints = new int[capacity];
+			for (int i = 0; i < m_size; i++) {
+				m_ints[i] = get(i);
+			}
+			m_chars = null;
+			m_limit = Integer.MAX_VALUE;
+		}
+		m_bytes = null;
+	}
+
+	private int capacity() {
+		if (m_bytes != null) {
+			return m_bytes.length;
+		}
+		if (m_chars != null) {
+			return m_chars.length;
+		}
+		return m_ints.length;
+	}
+
+	public int get(final int index) {
+		if (m_bytes != null) {
+			return m_bytes[index] & 0xFF;
+		}
+		if (m_chars != null) {
+			return m_chars[index];
+		}
+		return m_ints[index];
+	}
+
+	/**
+	 * Widens all values into the given array.
+	 * 
+	 * @param dest
+	 *            the array to store the values, has to hold at least
+	 *            {@link #size()} elements
+	 */
+	public void decode(final int[] dest) {
+		if (m_bytes != null) {
+			final byte[] data = m_bytes;
+			for (int i = 0; i < m_size; i++) {
+				dest[i] = data[i] & 0xFF;
+			}
+		} else if (m_chars != null) {
+			final char[] data = m_chars;
+			for (int i = 0; i < m_size; i++) {
+				dest[i] = data[i];
+			}
+		} else {
+			System.arraycopy(m_ints, 0, dest, 0, m_size);
+		}
+	}
+
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * @return the number of bytes used per value
+	 */
+	public int width() {
+		if (m_bytes != null) {
+			return 1;
+		}
+		if (m_chars != null) {
+			return 2;
+		}
+		return 4;
+	}
+
+	@Override
+	public String toString() {
+		final int[] data = new int[m_size];
+		decode(data);
+		return Arrays.toString(data);
+	}
+}
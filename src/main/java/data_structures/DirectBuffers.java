@@ -0,0 +1,95 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package data_structures;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the native memory of direct buffers right away instead of when they
+ * are collected. There is no public API for this, so it relies on
+ * {@code sun.misc.Unsafe.invokeCleaner} since Java 9 and on the cleaner of the
+ * buffer before. Where neither is accessible the buffer is left to the garbage
+ * collector.
+ */
+final class DirectBuffers {
+
+	/** the receiver of {@link #FREE}, null if it is invoked on the buffer */
+	private static final Object TARGET;
+
+	/** frees a buffer, null if not possible on this JVM */
+	private static final Method FREE;
+
+	/** cleans the cleaner returned by {@link #FREE} before Java 9 */
+	private static final Method CLEAN;
+
+	static {
+		Object target = null;
+		Method free = null;
+		Method clean = null;
+		try {
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			free = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			final Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			target = field.get(null);
+		} catch (final Exception e) {
+			free = null;
+			try {
+				free = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+				clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			} catch (final Exception e2) {
+				free = null;
+			}
+		}
+		TARGET = target;
+		FREE = free;
+		CLEAN = clean;
+	}
+
+	private DirectBuffers() {
+	}
+
+	/**
+	 * Frees the memory of the buffer, which must neither be accessed
+	 * afterwards nor be a slice or duplicate of another buffer.
+	 * 
+	 * @return whether the memory was freed
+	 */
+	static boolean free(final ByteBuffer buffer) {
+		if (FREE == null || !buffer.isDirect()) {
+			return false;
+		}
+		try {
+			if (CLEAN == null) {
+				FREE.invoke(TARGET, buffer);
+			} else {
+				final Object cleaner = FREE.invoke(buffer);
+				if (cleaner == null) {
+					return false;
+				}
+				CLEAN.invoke(cleaner);
+			}
+			return true;
+		} catch (final Exception e) {
+			return false;
+		}
+	}
+}
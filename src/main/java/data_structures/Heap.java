@@ -101,4 +101,11 @@ public final class Heap {
 		return s == 0;
 	}
 
+	/**
+	 * Forgets the value of a popped element, so that the heap can be reused.
+	 */
+	public void reset(final int i) {
+		value[i] = Double.POSITIVE_INFINITY;
+	}
+
 }
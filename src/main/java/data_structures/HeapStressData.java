@@ -0,0 +1,68 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package data_structures;
+
+/**
+ * Keeps the terms of each vertex in its own growable arrays on the heap.
+ * <p>
+ * In quantized mode the block ids start out as single bytes, which suffices
+ * for unweighted graphs since the block id of a term is bounded by its hop
+ * count. The block ids of a vertex are widened automatically once its terms
+ * exceed that range.
+ */
+public final class HeapStressData extends StressData {
+
+	private final CharArray[] m_pivotSlots;
+
+	private final CompactIntArray[] m_blocks;
+
+	public HeapStressData(final int capacity, final int[] pivots, final boolean quantized) {
+		super(capacity, pivots);
+		m_pivotSlots = new CharArray[capacity];
+		m_blocks = new CompactIntArray[capacity];
+		for (int i = 0; i < capacity; i++) {
+			m_pivotSlots[i] = new CharArray(pivots.length);
+			m_blocks[i] = new CompactIntArray(pivots.length, quantized);
+		}
+	}
+
+	@Override
+	public void addTerm(final int index, final int slot, final int block) {
+		m_pivotSlots[index].add((char) slot);
+		m_blocks[index].add(block);
+	}
+
+	@Override
+	public int getNumOfTerms(final int index) {
+		return m_pivotSlots[index].size();
+	}
+
+	@Override
+	public int getTerms(final int index, final int[] slots, final int[] blocks) {
+		final CharArray pivotSlots = m_pivotSlots[index];
+		final char[] data = pivotSlots.getData();
+		final int size = pivotSlots.size();
+		for (int i = 0; i < size; i++) {
+			slots[i] = data[i];
+		}
+		m_blocks[index].decode(blocks);
+		return size;
+	}
+
+}
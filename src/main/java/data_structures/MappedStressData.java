@@ -0,0 +1,443 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package data_structures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Keeps the terms on disk so that the term store may exceed the main memory.
+ * <p>
+ * While the terms are added they are streamed into at most MAX_BUCKETS spill
+ * files, one for each range of vertices. Sealing the data sorts one spill file
+ * at a time by vertex and writes the terms into a single file in vertex order,
+ * where the pivot slots of a vertex are directly followed by its block ids. A
+ * spill file too large to be sorted in memory is first distributed into
+ * smaller ones, each of a range of vertices. The term file is memory-mapped,
+ * so a sweep in vertex order reads it sequentially and benefits from the
+ * read-ahead of the operating system. It is deleted right after mapping where
+ * the operating system allows it, i.e., it lives until the mapping is
+ * collected, otherwise on {@link #close()}.
+ * <p>
+ * In quantized mode the block ids are stored in as few bytes as the largest
+ * block id allows.
+ */
+public final class MappedStressData extends StressData {
+
+	/**
+	 * Number of terms of a spill file that are sorted in memory at once.
+	 */
+	private static final int BUCKET_TERMS = 1 << 23;
+
+	/**
+	 * Largest number of spill files written at once, which bounds the open
+	 * files and their buffers.
+	 */
+	private static final int MAX_BUCKETS = 64;
+
+	/**
+	 * Largest size of a single mapped region.
+	 */
+	private static final long REGION_SIZE = 1L << 30;
+
+	private static final int SPILL_BUFFER = 1 << 15;
+
+	private static final int RECORD_SIZE = 10;
+
+	private final File m_directory;
+
+	private final boolean m_quantized;
+
+	private final int[] m_sizes;
+
+	private final int m_bucketVertices;
+
+	private final File[] m_spillFiles;
+
+	private DataOutputStream[] m_spills;
+
+	private int m_maxBlock;
+
+	private File m_termFile;
+
+	private int m_width;
+
+	private long[] m_offsets;
+
+	private int[] m_regionStarts;
+
+	private long[] m_regionOffsets;
+
+	private MappedByteBuffer[] m_regions;
+
+	/**
+	 * @param capacity
+	 *            the number of vertices
+	 * @param pivots
+	 *            the pivot-id table
+	 * @param quantized
+	 *            whether the block ids may use less than four bytes
+	 * @param directory
+	 *            the directory of the spill and term files, or {@code null}
+	 *            for the default temporary-file directory
+	 */
+	public MappedStressData(final int capacity, final int[] pivots, final boolean quantized, final File directory) {
+		super(capacity, pivots);
+		m_directory = directory;
+		m_quantized = quantized;
+		m_sizes = new int[capacity];
+		final int numOfBuckets = numOfBuckets(capacity, pivots.length);
+		m_bucketVertices = Math.max(1, (capacity + numOfBuckets - 1) / numOfBuckets);
+		m_spillFiles = new File[numOfBuckets];
+		m_spills = new DataOutputStream[numOfBuckets];
+		m_maxBlock = 0;
+	}
+
+	private static int numOfBuckets(final long capacity, final int numOfPivots) {
+		final long bucketVertices = Math.max(1, BUCKET_TERMS / Math.max(1, numOfPivots));
+		return (int) Math.max(1, Math.min(MAX_BUCKETS, (capacity + bucketVertices - 1) / bucketVertices));
+	}
+
+	/**
+	 * @return bytes of the heap used by the spill buffers and the in-memory
+	 *         sort
+	 */
+	public static long bufferBytes(final long capacity, final int numOfPivots) {
+		// the spills of the terms, or those of a distributed spill file and its reader
+		final long spills = (Math.max(numOfBuckets(capacity, numOfPivots), MAX_BUCKETS) + 1) * (long) SPILL_BUFFER;
+		// sort buffer of at most four-byte block ids and the fill counts
+		return spills + (long) BUCKET_TERMS * (2 + 4) + 4L * BUCKET_TERMS;
+	}
+
+	@Override
+	public void addTerm(final int index, final int slot, final int block) {
+		final int bucket = index / m_bucketVertices;
+		try {
+			DataOutputStream spill = m_spills[bucket];
+			if (spill == null) {
+				m_spillFiles[bucket] = createFile("spill");
+				spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(m_spillFiles[bucket]),
+						SPILL_BUFFER));
+				m_spills[bucket] = spill;
+			}
+			spill.writeInt(index);
+			spill.writeChar(slot);
+			spill.writeInt(block);
+		} catch (final IOException e) {
+			throw new IllegalStateException("could not spill the stress terms", e);
+		}
+		++m_sizes[index];
+		m_maxBlock = Math.max(m_maxBlock, block);
+	}
+
+	@Override
+	public void seal() {
+		try {
+			for (final DataOutputStream spill : m_spills) {
+				if (spill != null) {
+					spill.close();
+				}
+			}
+			m_spills = null;
+			m_width = 4;
+			if (m_quantized && m_maxBlock <= 0xFF) {
+				m_width = 1;
+			} else if (m_quantized && m_maxBlock <= Character.MAX_VALUE) {
+				m_width = 2;
+			}
+			calcOffsets();
+			m_termFile = createFile("terms");
+			try (RandomAccessFile file = new RandomAccessFile(m_termFile, "rw")) {
+				final FileChannel channel = file.getChannel();
+				for (int i = 0; i < m_spillFiles.length; i++) {
+					if (m_spillFiles[i] != null) {
+						final int first = i * m_bucketVertices;
+						sortRange(m_spillFiles[i], first, Math.min(m_sizes.length, first + m_bucketVertices), channel);
+						m_spillFiles[i] = null;
+					}
+				}
+				mapRegions(channel);
+			}
+			// the mapping stays valid where a mapped file can be deleted
+			if (m_termFile.delete()) {
+				m_termFile = null;
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException("could not write the stress terms", e);
+		}
+	}
+
+	private void calcOffsets() {
+		final int n = m_sizes.length;
+		final int termSize = 2 + m_width;
+		m_offsets = new long[n + 1];
+		// a vertex never crosses the border of a region
+		final IntArray regionStarts = new IntArray(1);
+		regionStarts.add(0);
+		long regionOffset = 0;
+		for (int i = 0; i < n; i++) {
+			final long next = m_offsets[i] + (long) m_sizes[i] * termSize;
+			if (next - regionOffset > REGION_SIZE) {
+				regionOffset = m_offsets[i];
+				regionStarts.add(i);
+			}
+			m_offsets[i + 1] = next;
+		}
+		m_regionStarts = Arrays.copyOf(regionStarts.getData(), regionStarts.size());
+		m_regionOffsets = new long[m_regionStarts.length];
+		for (int i = 0; i < m_regionOffsets.length; i++) {
+			m_regionOffsets[i] = m_offsets[m_regionStarts[i]];
+		}
+	}
+
+	/**
+	 * Writes the terms of a spill file of the given range of vertices into the
+	 * term file and deletes the spill file.
+	 */
+	private void sortRange(final File spillFile, final int first, final int last, final FileChannel channel)
+			throws IOException {
+		if ((m_offsets[last] - m_offsets[first]) / (2 + m_width) <= BUCKET_TERMS) {
+			sortInMemory(spillFile, first, last, channel);
+			return;
+		}
+		// a vertex has less than BUCKET_TERMS terms, hence there are at least two ranges
+		final int[] bounds = splitRange(first, last);
+		final File[] files = new File[bounds.length - 1];
+		try {
+			distribute(spillFile, bounds, files);
+			delete(spillFile);
+			for (int i = 0; i < files.length; i++) {
+				sortRange(files[i], bounds[i], bounds[i + 1], channel);
+				files[i] = null;
+			}
+		} finally {
+			for (final File file : files) {
+				if (file != null) {
+					delete(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the bounds of at most MAX_BUCKETS ranges of about the same
+	 *         number of terms
+	 */
+	private int[] splitRange(final int first, final int last) {
+		final long start = m_offsets[first];
+		final long bytes = m_offsets[last] - start;
+		final IntArray bounds = new IntArray(MAX_BUCKETS + 1);
+		bounds.add(first);
+		int previous = first;
+		for (int j = 1; j < MAX_BUCKETS; j++) {
+			// first vertex that starts at or after the target offset
+			final long target = start + bytes * j / MAX_BUCKETS;
+			int low = previous + 1;
+			int high = last;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (m_offsets[mid] < target) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low < last) {
+				bounds.add(low);
+				previous = low;
+			}
+		}
+		bounds.add(last);
+		return Arrays.copyOf(bounds.getData(), bounds.size());
+	}
+
+	/**
+	 * Distributes the records of a spill file into one new spill file per
+	 * range.
+	 */
+	private void distribute(final File spillFile, final int[] bounds, final File[] files) throws IOException {
+		final DataOutputStream[] spills = new DataOutputStream[files.length];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile),
+				SPILL_BUFFER))) {
+			for (int i = 0; i < files.length; i++) {
+				files[i] = createFile("spill");
+				spills[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[i]),
+						SPILL_BUFFER));
+			}
+			final long records = spillFile.length() / RECORD_SIZE;
+			for (long r = 0; r < records; r++) {
+				final int index = in.readInt();
+				int range = Arrays.binarySearch(bounds, index);
+				if (range < 0) {
+					range = -range - 2;
+				}
+				final DataOutputStream spill = spills[range];
+				spill.writeInt(index);
+				spill.writeChar(in.readChar());
+				spill.writeInt(in.readInt());
+			}
+		} finally {
+			closeAll(spills);
+		}
+	}
+
+	private void sortInMemory(final File spillFile, final int first, final int last, final FileChannel channel)
+			throws IOException {
+		final long start = m_offsets[first];
+		final ByteBuffer buffer = ByteBuffer.allocate((int) (m_offsets[last] - start)).order(
+				ByteOrder.nativeOrder());
+		final int[] fill = new int[last - first];
+		final long records = spillFile.length() / RECORD_SIZE;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile),
+				SPILL_BUFFER))) {
+			for (long i = 0; i < records; i++) {
+				final int index = in.readInt();
+				final int slot = in.readChar();
+				final int block = in.readInt();
+				final int base = (int) (m_offsets[index] - start);
+				final int pos = fill[index - first]++;
+				buffer.putChar(base + (pos << 1), (char) slot);
+				final int blockPos = base + (m_sizes[index] << 1) + pos * m_width;
+				switch (m_width) {
+				case 1:
+					buffer.put(blockPos, (byte) block);
+					break;
+				case 2:
+					buffer.putChar(blockPos, (char) block);
+					break;
+				default:
+					buffer.putInt(blockPos, block);
+					break;
+				}
+			}
+		}
+		long position = start;
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		delete(spillFile);
+	}
+
+	private void mapRegions(final FileChannel channel) throws IOException {
+		m_regions = new MappedByteBuffer[m_regionStarts.length];
+		for (int i = 0; i < m_regions.length; i++) {
+			final long end = i + 1 < m_regions.length ? m_regionOffsets[i + 1] : m_offsets[m_sizes.length];
+			m_regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, m_regionOffsets[i], end - m_regionOffsets[i]);
+			m_regions[i].order(ByteOrder.nativeOrder());
+		}
+	}
+
+	@Override
+	public int getNumOfTerms(final int index) {
+		return m_sizes[index];
+	}
+
+	@Override
+	public int getTerms(final int index, final int[] slots, final int[] blocks) {
+		if (m_regions == null) {
+			throw new IllegalStateException("terms are not sealed");
+		}
+		int region = Arrays.binarySearch(m_regionStarts, index);
+		if (region < 0) {
+			region = -region - 2;
+		}
+		final ByteBuffer buffer = m_regions[region];
+		final int size = m_sizes[index];
+		int offset = (int) (m_offsets[index] - m_regionOffsets[region]);
+		for (int i = 0; i < size; i++, offset += 2) {
+			slots[i] = buffer.getChar(offset);
+		}
+		switch (m_width) {
+		case 1:
+			for (int i = 0; i < size; i++, offset++) {
+				blocks[i] = buffer.get(offset) & 0xFF;
+			}
+			break;
+		case 2:
+			for (int i = 0; i < size; i++, offset += 2) {
+				blocks[i] = buffer.getChar(offset);
+			}
+			break;
+		default:
+			for (int i = 0; i < size; i++, offset += 4) {
+				blocks[i] = buffer.getInt(offset);
+			}
+			break;
+		}
+		return size;
+	}
+
+	private File createFile(final String prefix) throws IOException {
+		return File.createTempFile("sparse-stress-" + prefix, ".bin", m_directory);
+	}
+
+	/**
+	 * Deletes the file, or, if it cannot be deleted now, e.g., while it is
+	 * still mapped on Windows, when the JVM exits.
+	 */
+	private static void delete(final File file) {
+		if (!file.delete() && file.exists()) {
+			file.deleteOnExit();
+		}
+	}
+
+	private static void closeAll(final DataOutputStream[] spills) {
+		for (final DataOutputStream spill : spills) {
+			if (spill != null) {
+				try {
+					spill.close();
+				} catch (final IOException e) {
+					// the file is deleted anyway
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		m_regions = null;
+		if (m_spills != null) {
+			closeAll(m_spills);
+			m_spills = null;
+		}
+		for (int i = 0; i < m_spillFiles.length; i++) {
+			if (m_spillFiles[i] != null) {
+				delete(m_spillFiles[i]);
+				m_spillFiles[i] = null;
+			}
+		}
+		if (m_termFile != null) {
+			delete(m_termFile);
+			m_termFile = null;
+		}
+	}
+
+}
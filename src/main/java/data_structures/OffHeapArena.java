@@ -0,0 +1,192 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package data_structures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-size array of non-negative ints of one, two or four bytes each in
+ * native memory. The elements are addressed by long indices and split into
+ * segments of at most 1 GiB, where every segment holds a multiple of a given
+ * number of elements so that aligned runs never cross segment boundaries.
+ * <p>
+ * The long indices let the arena exceed 2^31 elements, although MSSP still
+ * bounds the terms of a graph by Integer.MAX_VALUE.
+ * <p>
+ * The memory is owned by the arena and only reachable through it. Closing the
+ * arena frees all segments, accessing it afterwards fails. On JVMs that do not
+ * allow to free direct buffers explicitly the segments are only dropped and
+ * freed by the garbage collector.
+ */
+public final class OffHeapArena {
+
+	private static final int SEGMENT_SIZE = 1 << 30;
+
+	private ByteBuffer[] m_segments;
+
+	private final int m_width;
+
+	private final int m_segmentShift;
+
+	private final long m_elementsPerSegment;
+
+	private final long m_size;
+
+	/**
+	 * @param size
+	 *            the number of elements
+	 * @param width
+	 *            the bytes per element (1, 2 or 4)
+	 * @param alignment
+	 *            the length of the runs that must not cross a segment
+	 */
+	public OffHeapArena(final long size, final int width, final int alignment) {
+		if (width != 1 && width != 2 && width != 4) {
+			throw new IllegalArgumentException("width has to be 1, 2 or 4 bytes");
+		}
+		if ((long) alignment * width > SEGMENT_SIZE) {
+			throw new IllegalArgumentException("alignment exceeds the segment size");
+		}
+		m_width = width;
+		m_segmentShift = Integer.numberOfTrailingZeros(width);
+		m_elementsPerSegment = (SEGMENT_SIZE >> m_segmentShift) / alignment * (long) alignment;
+		m_size = size;
+		final int numOfSegments = (int) ((size + m_elementsPerSegment - 1) / m_elementsPerSegment);
+		m_segments = new ByteBuffer[numOfSegments];
+		long remaining = size;
+		for (int i = 0; i < numOfSegments; i++) {
+			final long elements = Math.min(remaining, m_elementsPerSegment);
+			m_segments[i] = ByteBuffer.allocateDirect((int) (elements << m_segmentShift)).order(
+					ByteOrder.nativeOrder());
+			remaining -= elements;
+		}
+	}
+
+	public int width() {
+		return m_width;
+	}
+
+	public long size() {
+		return m_size;
+	}
+
+	/**
+	 * @return the largest value that can be stored
+	 */
+	public int limit() {
+		switch (m_width) {
+		case 1:
+			return 0xFF;
+		case 2:
+			return Character.MAX_VALUE;
+		default:
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	public void put(final long index, final int val) {
+		final ByteBuffer segment = segment(index);
+		final int offset = (int) (index % m_elementsPerSegment) << m_segmentShift;
+		switch (m_width) {
+		case 1:
+			segment.put(offset, (byte) val);
+			break;
+		case 2:
+			segment.putChar(offset, (char) val);
+			break;
+		default:
+			segment.putInt(offset, val);
+			break;
+		}
+	}
+
+	public int get(final long index) {
+		final ByteBuffer segment = segment(index);
+		final int offset = (int) (index % m_elementsPerSegment) << m_segmentShift;
+		switch (m_width) {
+		case 1:
+			return segment.get(offset) & 0xFF;
+		case 2:
+			return segment.getChar(offset);
+		default:
+			return segment.getInt(offset);
+		}
+	}
+
+	/**
+	 * Copies an aligned run of elements.
+	 * 
+	 * @param index
+	 *            the first element of the run
+	 * @param dest
+	 *            the array to store the values
+	 * @param count
+	 *            the length of the run
+	 */
+	public void get(final long index, final int[] dest, final int count) {
+		final ByteBuffer segment = segment(index);
+		int offset = (int) (index % m_elementsPerSegment) << m_segmentShift;
+		switch (m_width) {
+		case 1:
+			for (int i = 0; i < count; i++, offset++) {
+				dest[i] = segment.get(offset) & 0xFF;
+			}
+			break;
+		case 2:
+			for (int i = 0; i < count; i++, offset += 2) {
+				dest[i] = segment.getChar(offset);
+			}
+			break;
+		default:
+			for (int i = 0; i < count; i++, offset += 4) {
+				dest[i] = segment.getInt(offset);
+			}
+			break;
+		}
+	}
+
+	private ByteBuffer segment(final long index) {
+		if (m_segments == null) {
+			throw new IllegalStateException("arena is closed");
+		}
+		return m_segments[(int) (index / m_elementsPerSegment)];
+	}
+
+	/**
+	 * @return the number of allocated bytes
+	 */
+	public long bytes() {
+		return m_size << m_segmentShift;
+	}
+
+	/**
+	 * Frees all segments of the arena.
+	 */
+	public void close() {
+		if (m_segments == null) {
+			return;
+		}
+		final ByteBuffer[] segments = m_segments;
+		m_segments = null;
+		for (final ByteBuffer segment : segments) {
+			DirectBuffers.free(segment);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package data_structures;
+
+/**
+ * Keeps the terms in native memory outside of the Java heap, so that they
+ * neither count towards the heap limit nor have to be traced by the garbage
+ * collector. Every vertex owns a fixed run of one entry per pivot, which is
+ * addressed by a long offset and thus allows for more than 2^31 terms in
+ * total.
+ * <p>
+ * In quantized mode the block ids start out as single bytes and the block
+ * storage is widened once a block id exceeds that range.
+ */
+public final class OffHeapStressData extends StressData {
+
+	private final int m_stride;
+
+	private final int[] m_sizes;
+
+	private final OffHeapArena m_slots;
+
+	private OffHeapArena m_blocks;
+
+	public OffHeapStressData(final int capacity, final int[] pivots, final boolean quantized) {
+		super(capacity, pivots);
+		m_stride = Math.max(1, pivots.length);
+		m_sizes = new int[capacity];
+		final long size = (long) capacity * m_stride;
+		m_slots = new OffHeapArena(size, 2, m_stride);
+		m_blocks = new OffHeapArena(size, quantized ? 1 : 4, m_stride);
+	}
+
+	@Override
+	public void addTerm(final int index, final int slot, final int block) {
+		if (block > m_blocks.limit()) {
+			widen(block);
+		}
+		final long offset = (long) index * m_stride + m_sizes[index];
+		m_slots.put(offset, slot);
+		m_blocks.put(offset, block);
+		++m_sizes[index];
+	}
+
+	private void widen(final int block) {
+		final OffHeapArena blocks = new OffHeapArena(m_blocks.size(), block <= Character.MAX_VALUE ? 2 : 4,
+				m_stride);
+		for (int i = 0; i < m_sizes.length; i++) {
+			final long start = (long) i * m_stride;
+			for (long j = start, e = start + m_sizes[i]; j < e; j++) {
+				blocks.put(j, m_blocks.get(j));
+			}
+		}
+		m_blocks.close();
+		m_blocks = blocks;
+	}
+
+	@Override
+	public int getNumOfTerms(final int index) {
+		return m_sizes[index];
+	}
+
+	@Override
+	public int getTerms(final int index, final int[] slots, final int[] blocks) {
+		final long offset = (long) index * m_stride;
+		final int size = m_sizes[index];
+		m_slots.get(offset, slots, size);
+		m_blocks.get(offset, blocks, size);
+		return size;
+	}
+
+	@Override
+	public void close() {
+		m_slots.close();
+		m_blocks.close();
+	}
+
+}
@@ -18,36 +18,128 @@
  */
 package data_structures;
 
-public final class StressData {
+/**
+ * Sparse stress terms of all vertices. Pivot terms reference their pivot by a
+ * slot into the pivot-id table and their distance by a block id into the
+ * pivot's distance-block table. Since all terms of a pivot within the same
+ * distance block share the same hanging pointer, the term weights are derived
+ * from these tables and a per-vertex normalization. Neighbor terms are not
+ * stored at all, they are taken from the adjacency of the graph.
+ * <p>
+ * The tables are small and always kept on the heap, the storage of the terms
+ * themselves is up to the subclasses. Each vertex has at most one term per
+ * pivot.
+ */
+public abstract class StressData {
+
+	/**
+	 * The largest number of pivots that can be addressed by a slot.
+	 */
+	public static final int MAX_PIVOTS = Character.MAX_VALUE + 1;
+
+	protected final int[] m_pivots;
+
+	private final DoubleArray[] m_blockDistances;
+
+	private final IntArray[] m_blockHanging;
+
+	private final double[] m_normalization;
 
-	private DoubleArray[] m_distances;
+	protected StressData(final int capacity, final int[] pivots) {
+		if (pivots.length > MAX_PIVOTS) {
+			throw new IllegalArgumentException("at most " + MAX_PIVOTS + " pivots are supported");
+		}
+		m_pivots = pivots;
+		m_blockDistances = new DoubleArray[pivots.length];
+		m_blockHanging = new IntArray[pivots.length];
+		for (int i = 0; i < pivots.length; i++) {
+			m_blockDistances[i] = new DoubleArray(1);
+			m_blockHanging[i] = new IntArray(1);
+		}
+		m_normalization = new double[capacity];
+	}
 
-	private DoubleArray[] m_weights;
+	/**
+	 * @return the pivot-id table, i.e., the vertex id of each pivot slot
+	 */
+	public int[] getPivots() {
+		return m_pivots;
+	}
 
-	private IntArray[] m_positions;
+	/**
+	 * @return per pivot slot the distance of each distance block
+	 */
+	public DoubleArray[] getBlockDistances() {
+		return m_blockDistances;
+	}
 
-	public StressData(final int capacity) {
-		m_distances = new DoubleArray[capacity];
-		m_weights = new DoubleArray[capacity];
-		m_positions = new IntArray[capacity];
+	/**
+	 * @return per pivot slot the hanging pointer of each distance block
+	 */
+	public IntArray[] getBlockHanging() {
+		return m_blockHanging;
 	}
 
-	public DoubleArray[] getDistances() {
-		return m_distances;
+	/**
+	 * @return per vertex the factor normalizing the weights of its pivot and
+	 *         neighbor terms
+	 */
+	public double[] getNormalization() {
+		return m_normalization;
 	}
 
-	public DoubleArray[] getWeights() {
-		return m_weights;
+	/**
+	 * @return the number of vertices
+	 */
+	public int size() {
+		return m_normalization.length;
 	}
 
-	public IntArray[] getPositions() {
-		return m_positions;
+	/**
+	 * Adds a pivot term to a vertex.
+	 * 
+	 * @param index
+	 *            the vertex
+	 * @param slot
+	 *            the pivot slot
+	 * @param block
+	 *            the distance block of the pivot
+	 */
+	public abstract void addTerm(final int index, final int slot, final int block);
+
+	/**
+	 * @param index
+	 *            the vertex
+	 * @return the number of pivot terms of the vertex
+	 */
+	public abstract int getNumOfTerms(final int index);
+
+	/**
+	 * Copies the pivot terms of a vertex. Implementations must not allocate
+	 * and must allow concurrent readers.
+	 * 
+	 * @param index
+	 *            the vertex
+	 * @param slots
+	 *            storage for the pivot slots, at least of the size of the
+	 *            pivot-id table
+	 * @param blocks
+	 *            storage for the distance blocks, at least of the size of the
+	 *            pivot-id table
+	 * @return the number of terms
+	 */
+	public abstract int getTerms(final int index, final int[] slots, final int[] blocks);
+
+	/**
+	 * Called once all terms have been added.
+	 */
+	public void seal() {
 	}
 
-	public void init(final int index, final int size) {
-		m_distances[index] = new DoubleArray(size);
-		m_weights[index] = new DoubleArray(size);
-		m_positions[index] = new IntArray(size);
+	/**
+	 * Releases the term storage, the data must not be used afterwards.
+	 */
+	public void close() {
 	}
 
 }
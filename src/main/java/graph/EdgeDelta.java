@@ -0,0 +1,191 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import data_structures.DoubleArray;
+import data_structures.IntArray;
+
+/**
+ * A batch of edge deletions and insertions. Inserting an edge that exists
+ * replaces its weight, i.e., it is deleted and inserted anew. Inserting an edge
+ * twice keeps the last weight.
+ */
+public final class EdgeDelta {
+
+	private final IntArray m_deletedSources = new IntArray(16);
+
+	private final IntArray m_deletedTargets = new IntArray(16);
+
+	private final IntArray m_insertedSources = new IntArray(16);
+
+	private final IntArray m_insertedTargets = new IntArray(16);
+
+	private final DoubleArray m_insertedWeights = new DoubleArray(16);
+
+	/** index of each inserted edge */
+	private final HashMap<Long, Integer> m_insertions = new HashMap<Long, Integer>();
+
+	public void delete(final int source, final int target) {
+		m_deletedSources.add(source);
+		m_deletedTargets.add(target);
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the weight is not positive
+	 */
+	public void insert(final int source, final int target, final double weight) throws IllegalArgumentException {
+		if (!(weight > 0) || Double.isInfinite(weight)) {
+			throw new IllegalArgumentException("weights have to be positive");
+		}
+		final Integer index = m_insertions.get(key(source, target));
+		if (index != null) {
+			m_insertedWeights.getData()[index] = weight;
+			return;
+		}
+		m_insertions.put(key(source, target), m_insertedSources.size());
+		m_insertedSources.add(source);
+		m_insertedTargets.add(target);
+		m_insertedWeights.add(weight);
+	}
+
+	public int getNumOfDeleted() {
+		return m_deletedSources.size();
+	}
+
+	public int getDeletedSource(final int index) {
+		return m_deletedSources.getData()[index];
+	}
+
+	public int getDeletedTarget(final int index) {
+		return m_deletedTargets.getData()[index];
+	}
+
+	public int getNumOfInserted() {
+		return m_insertedSources.size();
+	}
+
+	public int getInsertedSource(final int index) {
+		return m_insertedSources.getData()[index];
+	}
+
+	public int getInsertedTarget(final int index) {
+		return m_insertedTargets.getData()[index];
+	}
+
+	public double getInsertedWeight(final int index) {
+		return m_insertedWeights.getData()[index];
+	}
+
+	/**
+	 * @param g
+	 *            the graph before the delta
+	 * @return the graph after the delta, the vertices are the same
+	 * @throws IllegalArgumentException
+	 *             if a deleted edge does not exist
+	 */
+	public Graph apply(final Graph g) throws IllegalArgumentException {
+		final HashSet<Long> removed = new HashSet<Long>();
+		for (int i = 0; i < getNumOfDeleted(); i++) {
+			if (weight(g, getDeletedSource(i), getDeletedTarget(i)) == Double.POSITIVE_INFINITY) {
+				throw new IllegalArgumentException("edge " + getDeletedSource(i) + "," + getDeletedTarget(i)
+						+ " does not exist");
+			}
+			removed.add(key(getDeletedSource(i), getDeletedTarget(i)));
+		}
+		for (int i = 0; i < getNumOfInserted(); i++) {
+			removed.add(key(getInsertedSource(i), getInsertedTarget(i)));
+		}
+		// only the adjacencies of the touched vertices are filtered
+		final int n = g.n();
+		final boolean[] touched = new boolean[n];
+		for (final Long edge : removed) {
+			touched[(int) (edge >>> 32)] = true;
+			touched[(int) (long) edge] = true;
+		}
+		// the remaining edges, then the inserted ones
+		final int[] degrees = new int[n];
+		for (int v = 0; v < n; v++) {
+			if (!touched[v]) {
+				degrees[v] = g.degree(v);
+				continue;
+			}
+			for (final int u : g.getNeighbors(v)) {
+				if (!removed.contains(key(v, u))) {
+					++degrees[v];
+				}
+			}
+		}
+		for (int i = 0; i < getNumOfInserted(); i++) {
+			++degrees[getInsertedSource(i)];
+			++degrees[getInsertedTarget(i)];
+		}
+		final int[][] edges = new int[n][];
+		final double[][] weights = new double[n][];
+		long m = 0;
+		for (int v = 0; v < n; v++) {
+			edges[v] = new int[degrees[v]];
+			weights[v] = new double[degrees[v]];
+			final int[] neighbors = g.getNeighbors(v);
+			final double[] neighborWeights = g.getWeights(v);
+			int k = 0;
+			for (int j = 0; j < neighbors.length; j++) {
+				if (!touched[v] || !removed.contains(key(v, neighbors[j]))) {
+					edges[v][k] = neighbors[j];
+					weights[v][k++] = neighborWeights[j];
+				}
+			}
+			degrees[v] = k;
+			m += degrees[v];
+		}
+		for (int i = 0; i < getNumOfInserted(); i++) {
+			final int source = getInsertedSource(i);
+			final int target = getInsertedTarget(i);
+			edges[source][degrees[source]] = target;
+			weights[source][degrees[source]++] = getInsertedWeight(i);
+			edges[target][degrees[target]] = source;
+			weights[target][degrees[target]++] = getInsertedWeight(i);
+			m += 2;
+		}
+		return new Graph(edges, weights, (int) (m / 2), g.isWeighted());
+	}
+
+	/**
+	 * @return the least weight of the edges between the vertices, infinity if
+	 *         there is none
+	 */
+	public static double weight(final Graph g, final int source, final int target) {
+		final int[] neighbors = g.getNeighbors(source);
+		final double[] weights = g.getWeights(source);
+		double weight = Double.POSITIVE_INFINITY;
+		for (int j = 0; j < neighbors.length; j++) {
+			if (neighbors[j] == target) {
+				weight = Math.min(weight, weights[j]);
+			}
+		}
+		return weight;
+	}
+
+	private static Long key(final int source, final int target) {
+		return ((long) Math.min(source, target) << 32) | Math.max(source, target);
+	}
+}
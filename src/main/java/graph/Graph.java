@@ -20,6 +20,7 @@ package graph;
 
 import io.Pair;
 
+import java.util.Arrays;
 import java.util.List;
 
 public final class Graph {
@@ -57,6 +58,78 @@ public final class Graph {
 		m_weighted = weighted;
 	}
 
+	Graph(final int[][] edges, final double[][] weights, final int m, final boolean weighted) {
+		m_n = edges.length;
+		m_m = m;
+		m_edges = edges;
+		m_weights = weights;
+		m_weighted = weighted;
+	}
+
+	/**
+	 * Relabels the vertices, the adjacency lists are copied in the new order so
+	 * that neighboring ids are also close in memory.
+	 * 
+	 * @param order
+	 *            the vertices in their new order, i.e., vertex order[i]
+	 *            becomes vertex i
+	 * @return the relabeled graph
+	 */
+	public Graph relabel(final int[] order) {
+		final int[] rank = VertexOrder.invert(order);
+		final int[][] edges = new int[m_n][];
+		final double[][] weights = new double[m_n][];
+		for (int i = 0; i < m_n; i++) {
+			final int[] neighbors = m_edges[order[i]];
+			final int[] relabeled = new int[neighbors.length];
+			for (int j = 0; j < neighbors.length; j++) {
+				relabeled[j] = rank[neighbors[j]];
+			}
+			edges[i] = relabeled;
+			weights[i] = m_weights[order[i]].clone();
+		}
+		return new Graph(edges, weights, m_m, m_weighted);
+	}
+
+	/**
+	 * Extracts the subgraph induced by the given vertices.
+	 * 
+	 * @param vertices
+	 *            the distinct vertices of the subgraph, vertex vertices[i]
+	 *            becomes vertex i
+	 * @return the induced subgraph
+	 */
+	public Graph subgraph(final int[] vertices) {
+		final int[] rank = new int[m_n];
+		Arrays.fill(rank, -1);
+		for (int i = 0; i < vertices.length; i++) {
+			rank[vertices[i]] = i;
+		}
+		final int[][] edges = new int[vertices.length][];
+		final double[][] weights = new double[vertices.length][];
+		int m = 0;
+		for (int i = 0; i < vertices.length; i++) {
+			final int[] neighbors = m_edges[vertices[i]];
+			final double[] neighborWeights = m_weights[vertices[i]];
+			int degree = 0;
+			for (int j = 0; j < neighbors.length; j++) {
+				if (rank[neighbors[j]] >= 0) {
+					++degree;
+				}
+			}
+			edges[i] = new int[degree];
+			weights[i] = new double[degree];
+			for (int j = 0, k = 0; j < neighbors.length; j++) {
+				if (rank[neighbors[j]] >= 0) {
+					edges[i][k] = rank[neighbors[j]];
+					weights[i][k++] = neighborWeights[j];
+				}
+			}
+			m += degree;
+		}
+		return new Graph(edges, weights, m / 2, m_weighted);
+	}
+
 	public int n() {
 		return m_n;
 	}
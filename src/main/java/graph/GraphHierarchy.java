@@ -0,0 +1,258 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A hierarchy of ever coarser graphs, level 0 being the input. Each level
+ * contracts a matching of the level below that prefers vertices representing
+ * few input vertices, so that the coarse vertices grow evenly. A coarse
+ * vertex sits at the center of the edge it was contracted from, and a coarse
+ * edge is as long as the shortest path between the centers over the edges it
+ * replaces. Coarse graphs are therefore weighted.
+ */
+public final class GraphHierarchy {
+
+	/** coarsening stops once a matching keeps more than this share of vertices */
+	private static final double MAX_SHRINK = 0.9;
+
+	private final List<Graph> m_graphs;
+
+	/** the coarse vertex of each vertex per level */
+	private final List<int[]> m_parents;
+
+	/** the matched vertex of each vertex per level, or the vertex itself */
+	private final List<int[]> m_partners;
+
+	/** the distance of each vertex to the center of its coarse vertex per level */
+	private final List<double[]> m_offsets;
+
+	/**
+	 * @param g
+	 *            the input graph
+	 * @param coarsestSize
+	 *            the number of vertices below which coarsening stops
+	 */
+	public GraphHierarchy(final Graph g, final int coarsestSize) {
+		m_graphs = new ArrayList<Graph>();
+		m_parents = new ArrayList<int[]>();
+		m_partners = new ArrayList<int[]>();
+		m_offsets = new ArrayList<double[]>();
+		m_graphs.add(g);
+		Graph fine = g;
+		int[] sizes = new int[g.n()];
+		Arrays.fill(sizes, 1);
+		while (fine.n() > coarsestSize) {
+			final int[] partners = match(fine, sizes);
+			final int[] parents = new int[fine.n()];
+			final int[] members = new int[fine.n()];
+			Arrays.fill(parents, -1);
+			int numOfCoarse = 0;
+			for (int i = 0; i < fine.n(); i++) {
+				if (parents[i] < 0) {
+					parents[i] = numOfCoarse;
+					parents[partners[i]] = numOfCoarse;
+					members[numOfCoarse++] = i;
+				}
+			}
+			if (numOfCoarse > MAX_SHRINK * fine.n()) {
+				break;
+			}
+			final double[] offsets = new double[fine.n()];
+			for (int i = 0; i < fine.n(); i++) {
+				if (partners[i] != i) {
+					offsets[i] = edgeWeight(fine, i, partners[i]) / 2;
+				}
+			}
+			final int[] coarseSizes = new int[numOfCoarse];
+			for (int i = 0; i < fine.n(); i++) {
+				coarseSizes[parents[i]] += sizes[i];
+			}
+			fine = contract(fine, partners, parents, offsets, Arrays.copyOf(members, numOfCoarse));
+			sizes = coarseSizes;
+			m_graphs.add(fine);
+			m_parents.add(parents);
+			m_partners.add(partners);
+			m_offsets.add(offsets);
+		}
+	}
+
+	/**
+	 * @return the number of levels including the input
+	 */
+	public int getNumOfLevels() {
+		return m_graphs.size();
+	}
+
+	/**
+	 * @param level
+	 *            the level, 0 is the input
+	 * @return the graph of the level
+	 */
+	public Graph getGraph(final int level) {
+		return m_graphs.get(level);
+	}
+
+	/**
+	 * Places the vertices of a level by the layout of the level above. Matched
+	 * vertices are placed at their distance from the center of their coarse
+	 * vertex in opposite, random directions.
+	 * 
+	 * @param level
+	 *            the level to place
+	 * @param coarseLayout
+	 *            the interleaved coordinates of the level above
+	 * @param rand
+	 *            the random directions
+	 * @return the interleaved coordinates of the level
+	 */
+	public double[] prolong(final int level, final double[] coarseLayout, final Random rand) {
+		final int[] parents = m_parents.get(level);
+		final int[] partners = m_partners.get(level);
+		final double[] offsets = m_offsets.get(level);
+		final double[] layout = new double[parents.length << 1];
+		for (int i = 0; i < parents.length; i++) {
+			final int j = partners[i];
+			if (j < i) {
+				continue;
+			}
+			final int c = parents[i] << 1;
+			if (j == i) {
+				layout[i << 1] = coarseLayout[c];
+				layout[(i << 1) + 1] = coarseLayout[c + 1];
+				continue;
+			}
+			final double angle = 2 * Math.PI * rand.nextDouble();
+			final double dx = Math.cos(angle);
+			final double dy = Math.sin(angle);
+			layout[i << 1] = coarseLayout[c] + offsets[i] * dx;
+			layout[(i << 1) + 1] = coarseLayout[c + 1] + offsets[i] * dy;
+			layout[j << 1] = coarseLayout[c] - offsets[j] * dx;
+			layout[(j << 1) + 1] = coarseLayout[c + 1] - offsets[j] * dy;
+		}
+		return layout;
+	}
+
+	/**
+	 * Greedy matching, the vertices representing the fewest input vertices
+	 * are visited first and matched with their smallest unmatched neighbor,
+	 * ties broken by the shorter edge.
+	 */
+	private static int[] match(final Graph g, final int[] sizes) {
+		final int n = g.n();
+		final long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = ((long) sizes[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		final int[] partners = new int[n];
+		Arrays.fill(partners, -1);
+		for (final long key : keys) {
+			final int u = (int) key;
+			if (partners[u] >= 0) {
+				continue;
+			}
+			final int[] neighbors = g.getNeighbors(u);
+			final double[] weights = g.getWeights(u);
+			int best = u;
+			double bestWeight = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < neighbors.length; j++) {
+				final int v = neighbors[j];
+				if (v == u || partners[v] >= 0) {
+					continue;
+				}
+				if (best == u || sizes[v] < sizes[best] || (sizes[v] == sizes[best] && weights[j] < bestWeight)) {
+					best = v;
+					bestWeight = weights[j];
+				}
+			}
+			partners[u] = best;
+			partners[best] = u;
+		}
+		return partners;
+	}
+
+	private static Graph contract(final Graph g, final int[] partners, final int[] parents, final double[] offsets,
+			final int[] members) {
+		final int numOfCoarse = members.length;
+		final int[][] edges = new int[numOfCoarse][];
+		final double[][] weights = new double[numOfCoarse][];
+		// the position of each coarse neighbor in the current adjacency list
+		final int[] position = new int[numOfCoarse];
+		Arrays.fill(position, -1);
+		int m = 0;
+		for (int c = 0; c < numOfCoarse; c++) {
+			final int u = members[c];
+			final int v = partners[u];
+			final int capacity = g.degree(u) + (v != u ? g.degree(v) : 0);
+			final int[] neighbors = new int[capacity];
+			final double[] lengths = new double[capacity];
+			int size = collect(g, u, c, parents, offsets, position, neighbors, lengths, 0);
+			if (v != u) {
+				size = collect(g, v, c, parents, offsets, position, neighbors, lengths, size);
+			}
+			for (int j = 0; j < size; j++) {
+				position[neighbors[j]] = -1;
+			}
+			edges[c] = Arrays.copyOf(neighbors, size);
+			weights[c] = Arrays.copyOf(lengths, size);
+			m += size;
+		}
+		return new Graph(edges, weights, m / 2, true);
+	}
+
+	private static int collect(final Graph g, final int u, final int c, final int[] parents,
+			final double[] offsets, final int[] position, final int[] neighbors, final double[] lengths,
+			int size) {
+		final int[] fineNeighbors = g.getNeighbors(u);
+		final double[] fineWeights = g.getWeights(u);
+		for (int j = 0; j < fineNeighbors.length; j++) {
+			final int b = fineNeighbors[j];
+			final int d = parents[b];
+			if (d == c) {
+				continue;
+			}
+			final double length = offsets[u] + fineWeights[j] + offsets[b];
+			if (position[d] < 0) {
+				position[d] = size;
+				neighbors[size] = d;
+				lengths[size++] = length;
+			} else if (length < lengths[position[d]]) {
+				lengths[position[d]] = length;
+			}
+		}
+		return size;
+	}
+
+	private static double edgeWeight(final Graph g, final int u, final int v) {
+		final int[] neighbors = g.getNeighbors(u);
+		final double[] weights = g.getWeights(u);
+		double weight = Double.POSITIVE_INFINITY;
+		for (int j = 0; j < neighbors.length; j++) {
+			if (neighbors[j] == v) {
+				weight = Math.min(weight, weights[j]);
+			}
+		}
+		return weight;
+	}
+}
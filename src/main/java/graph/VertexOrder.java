@@ -0,0 +1,202 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Vertex orders that place vertices close to each other in memory when they
+ * are close in the graph or in the layout. An order lists the vertices in
+ * their new order, see {@link Graph#relabel(int[])}.
+ */
+public final class VertexOrder {
+
+	/** bits per coordinate of the Hilbert curve */
+	private static final int HILBERT_BITS = 16;
+
+	/**
+	 * Breadth-first order, every component is started at a vertex of minimum
+	 * degree.
+	 * 
+	 * @param g
+	 *            the graph
+	 * @return the order
+	 */
+	public static int[] bfs(final Graph g) {
+		return traverse(g, false);
+	}
+
+	/**
+	 * Reverse Cuthill-McKee order, a breadth-first order that visits the
+	 * neighbors of a vertex by ascending degree, reversed.
+	 * 
+	 * @param g
+	 *            the graph
+	 * @return the order
+	 */
+	public static int[] rcm(final Graph g) {
+		final int[] order = traverse(g, true);
+		for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+			final int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		return order;
+	}
+
+	/**
+	 * Order along a Hilbert curve through the bounding box of the layout.
+	 * 
+	 * @param layout
+	 *            the interleaved coordinates
+	 * @return the order
+	 */
+	public static int[] hilbert(final double[] layout) {
+		final int n = layout.length >> 1;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, layout[i << 1]);
+			maxX = Math.max(maxX, layout[i << 1]);
+			minY = Math.min(minY, layout[(i << 1) + 1]);
+			maxY = Math.max(maxY, layout[(i << 1) + 1]);
+		}
+		final int cells = 1 << HILBERT_BITS;
+		final double extent = Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+		final double scale = (cells - 1) / extent;
+		// the curve index in the upper, the vertex in the lower bits
+		final long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			final int x = (int) ((layout[i << 1] - minX) * scale);
+			final int y = (int) ((layout[(i << 1) + 1] - minY) * scale);
+			keys[i] = (hilbertIndex(x, y, cells) << 31) | i;
+		}
+		Arrays.sort(keys);
+		final int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+		}
+		return order;
+	}
+
+	/**
+	 * @param order
+	 *            the vertices in their new order
+	 * @return the new id of each vertex
+	 */
+	public static int[] invert(final int[] order) {
+		final int[] rank = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			rank[order[i]] = i;
+		}
+		return rank;
+	}
+
+	/**
+	 * @param layout
+	 *            the interleaved coordinates
+	 * @param order
+	 *            the vertices in their new order
+	 * @return the coordinates in the new order
+	 */
+	public static double[] relabel(final double[] layout, final int[] order) {
+		final double[] relabeled = new double[layout.length];
+		for (int i = 0; i < order.length; i++) {
+			relabeled[i << 1] = layout[order[i] << 1];
+			relabeled[(i << 1) + 1] = layout[(order[i] << 1) + 1];
+		}
+		return relabeled;
+	}
+
+	private static int[] traverse(final Graph g, final boolean byDegree) {
+		final int n = g.n();
+		// vertices by ascending degree, ties by id
+		final long[] starts = new long[n];
+		for (int i = 0; i < n; i++) {
+			starts[i] = ((long) g.degree(i) << 32) | i;
+		}
+		Arrays.sort(starts);
+		final boolean[] visited = new boolean[n];
+		final int[] order = new int[n];
+		long[] neighbors = new long[0];
+		int tail = 0;
+		for (int s = 0; s < n; s++) {
+			final int start = (int) starts[s];
+			if (visited[start]) {
+				continue;
+			}
+			visited[start] = true;
+			order[tail++] = start;
+			// the order doubles as the queue
+			for (int head = tail - 1; head < tail; head++) {
+				final int[] adjacent = g.getNeighbors(order[head]);
+				if (byDegree) {
+					if (neighbors.length < adjacent.length) {
+						neighbors = new long[adjacent.length];
+					}
+					int size = 0;
+					for (final int v : adjacent) {
+						if (!visited[v]) {
+							visited[v] = true;
+							neighbors[size++] = ((long) g.degree(v) << 32) | v;
+						}
+					}
+					Arrays.sort(neighbors, 0, size);
+					for (int i = 0; i < size; i++) {
+						order[tail++] = (int) neighbors[i];
+					}
+				} else {
+					for (final int v : adjacent) {
+						if (!visited[v]) {
+							visited[v] = true;
+							order[tail++] = v;
+						}
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * @return the position of cell (x, y) along the Hilbert curve through a
+	 *         grid of cells x cells
+	 */
+	private static long hilbertIndex(int x, int y, final int cells) {
+		long index = 0;
+		for (int s = cells >> 1; s > 0; s >>= 1) {
+			final int rx = (x & s) > 0 ? 1 : 0;
+			final int ry = (y & s) > 0 ? 1 : 0;
+			index += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				final int swap = x;
+				x = y;
+				y = swap;
+			}
+		}
+		return index;
+	}
+}
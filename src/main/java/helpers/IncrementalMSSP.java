@@ -0,0 +1,249 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package helpers;
+
+import graph.Graph;
+
+import java.util.Arrays;
+
+import data_structures.DoubleArray;
+import data_structures.Heap;
+import data_structures.IntArray;
+import data_structures.StressData;
+
+/**
+ * Builds the stress data of a growing set of pivots. Every extension runs a
+ * shortest-path search from each new pivot, moves the vertices closer to it
+ * into its cluster, and rebuilds the stress data from the terms of the
+ * previous pivots and those of the new ones. The previous terms keep their
+ * distance blocks, only the hanging pointers are recounted since the clusters
+ * of the previous pivots shrink. Unlike in {@link MSSP}, ties between pivots
+ * are not balanced but stay with the earlier pivot. Known distances, e.g., of
+ * {@link PivotDistances}, replace the searches.
+ */
+public final class IncrementalMSSP {
+
+	private final Graph m_graph;
+
+	/** all pivots in the order in which they are added */
+	private final int[] m_pivots;
+
+	private final Options m_options;
+
+	/** the closest pivot slot of each vertex */
+	private final int[] m_clusters;
+
+	/** the distance of each vertex to its closest pivot */
+	private final double[] m_clusterDistances;
+
+	/** per pivot slot the distance of each distance block */
+	private final DoubleArray[] m_blockDistances;
+
+	/** per pivot slot the known distances, null if they are searched */
+	private final double[][] m_distances;
+
+	private int m_numOfPivots;
+
+	private StressData m_stressData;
+
+	/**
+	 * @param g
+	 *            the graph
+	 * @param pivots
+	 *            the pivots in the order in which they are to be added
+	 * @param options
+	 *            the options, which determine the storage of the terms
+	 */
+	public IncrementalMSSP(final Graph g, final int[] pivots, final Options options) {
+		this(g, pivots, null, options);
+	}
+
+	/**
+	 * @param g
+	 *            the graph
+	 * @param pivots
+	 *            the pivots in the order in which they are to be added
+	 * @param distances
+	 *            per pivot the distance of each vertex, infinity if
+	 *            unreachable, or null to search them
+	 * @param options
+	 *            the options, which determine the storage of the terms
+	 */
+	public IncrementalMSSP(final Graph g, final int[] pivots, final double[][] distances, final Options options) {
+		m_graph = g;
+		m_distances = distances;
+		m_pivots = pivots;
+		m_options = options;
+		m_clusters = new int[g.n()];
+		Arrays.fill(m_clusters, -1);
+		m_clusterDistances = new double[g.n()];
+		Arrays.fill(m_clusterDistances, Double.POSITIVE_INFINITY);
+		m_blockDistances = new DoubleArray[pivots.length];
+		m_numOfPivots = 0;
+	}
+
+	/**
+	 * @return the number of pivots added so far
+	 */
+	public int getNumOfPivots() {
+		return m_numOfPivots;
+	}
+
+	/**
+	 * @return the number of pivots once all are added
+	 */
+	public int getMaxNumOfPivots() {
+		return m_pivots.length;
+	}
+
+	/**
+	 * @return whether some pivots have not been added yet
+	 */
+	public boolean hasMore() {
+		return m_numOfPivots < m_pivots.length;
+	}
+
+	/**
+	 * Adds pivots up to the given number. The stress data returned by the
+	 * previous call is closed.
+	 * 
+	 * @param numOfPivots
+	 *            the number of pivots afterwards
+	 * @return the sealed stress data of all pivots added so far
+	 */
+	public StressData extend(final int numOfPivots) {
+		final int from = m_numOfPivots;
+		final int to = Math.min(numOfPivots, m_pivots.length);
+		final int n = m_graph.n();
+		final StressData sData = StressFactory.createStressData(m_graph, Arrays.copyOf(m_pivots, to), m_options);
+		// the terms of the previous pivots
+		if (m_stressData != null) {
+			final int[] slots = new int[from];
+			final int[] blocks = new int[from];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0, e = m_stressData.getTerms(i, slots, blocks); j < e; j++) {
+					sData.addTerm(i, slots[j], blocks[j]);
+				}
+			}
+			m_stressData.close();
+		}
+		// the pivot and its neighbors are covered by the neighbor terms
+		final int[] excluded = new int[n];
+		Arrays.fill(excluded, -1);
+		for (int slot = from; slot < to; slot++) {
+			addPivot(sData, slot, excluded);
+		}
+		countHanging(sData, to);
+		sData.seal();
+		m_stressData = sData;
+		m_numOfPivots = to;
+		return sData;
+	}
+
+	private void addPivot(final StressData sData, final int slot, final int[] excluded) {
+		final int n = m_graph.n();
+		final int pivot = m_pivots[slot];
+		excluded[pivot] = slot;
+		for (final int neighbor : m_graph.getNeighbors(pivot)) {
+			excluded[neighbor] = slot;
+		}
+		final DoubleArray blockDistances = new DoubleArray(1);
+		m_blockDistances[slot] = blockDistances;
+		final Heap heap = new Heap(n);
+		final boolean[] marked = new boolean[n];
+		final double[] distances = m_distances == null ? null : m_distances[slot];
+		if (distances == null) {
+			heap.upsert(pivot, 0);
+		} else {
+			// the known distances only need to be brought into order
+			for (int i = 0; i < n; i++) {
+				if (distances[i] != Double.POSITIVE_INFINITY) {
+					heap.upsert(i, distances[i]);
+				}
+			}
+		}
+		while (!heap.isEmpty()) {
+			// pop minimum distance node
+			final int index = heap.pop();
+			final double dist = heap.value(index);
+			marked[index] = true;
+			if (dist < m_clusterDistances[index]) {
+				m_clusters[index] = slot;
+				m_clusterDistances[index] = dist;
+			}
+			if (dist > 0 && excluded[index] != slot) {
+				// open a new distance block, the distances arrive in order
+				final int size = blockDistances.size();
+				if (size == 0 || blockDistances.getData()[size - 1] != dist) {
+					blockDistances.add(dist);
+				}
+				sData.addTerm(index, slot, blockDistances.size() - 1);
+			}
+			if (distances != null) {
+				continue;
+			}
+			final int[] neighborIndex = m_graph.getNeighbors(index);
+			final double[] neighWeights = m_graph.getWeights(index);
+			for (int i = 0; i < neighborIndex.length; i++) {
+				if (!marked[neighborIndex[i]]) {
+					heap.upsert(neighborIndex[i], dist + neighWeights[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the hanging pointer of each distance block to the number of
+	 * vertices of the pivot's cluster within half the block distance.
+	 */
+	private void countHanging(final StressData sData, final int numOfPivots) {
+		final int n = m_graph.n();
+		// the cluster distances grouped by cluster
+		final int[] starts = new int[numOfPivots + 1];
+		for (int i = 0; i < n; i++) {
+			if (m_clusters[i] >= 0) {
+				++starts[m_clusters[i] + 1];
+			}
+		}
+		for (int slot = 0; slot < numOfPivots; slot++) {
+			starts[slot + 1] += starts[slot];
+		}
+		final int[] fill = Arrays.copyOf(starts, numOfPivots);
+		final double[] sorted = new double[starts[numOfPivots]];
+		for (int i = 0; i < n; i++) {
+			if (m_clusters[i] >= 0) {
+				sorted[fill[m_clusters[i]]++] = m_clusterDistances[i];
+			}
+		}
+		final DoubleArray[] bDist = sData.getBlockDistances();
+		final IntArray[] bHanging = sData.getBlockHanging();
+		for (int slot = 0; slot < numOfPivots; slot++) {
+			Arrays.sort(sorted, starts[slot], starts[slot + 1]);
+			final double[] distances = m_blockDistances[slot].getData();
+			int pointer = starts[slot];
+			for (int b = 0; b < m_blockDistances[slot].size(); b++) {
+				while (pointer < starts[slot + 1] && sorted[pointer] <= distances[b] / 2) {
+					++pointer;
+				}
+				bDist[slot].add(distances[b]);
+				bHanging[slot].add(pointer - starts[slot]);
+			}
+		}
+	}
+}
@@ -42,9 +42,8 @@ public final class MSSP {
 		final int n = g.n();
 
 		// stress data elements
-		final DoubleArray[] dDist = stressData.getDistances();
-		final DoubleArray[] dWeights = stressData.getWeights();
-		final IntArray[] iPosition = stressData.getPositions();
+		final DoubleArray[] bDist = stressData.getBlockDistances();
+		final IntArray[] bHanging = stressData.getBlockHanging();
 		// hanging pointer for the sizes
 		final int[] hangingPointer = new int[pC];
 
@@ -94,9 +93,8 @@ public final class MSSP {
 
 			// if we changed the distance block
 			if (cDistBlock != dist) {
-				stressPartitioning(pivots, hasNeighborTerm, includeOwnPivot, n, dDist, dWeights, iPosition,
-						hangingPointer, clAssignment, clSize, sDistances, cDistBlock, iBlock, pivNeigh, dist,
-						iProcBlock);
+				stressPartitioning(hasNeighborTerm, includeOwnPivot, n, stressData, bDist, bHanging, hangingPointer,
+						clAssignment, clSize, sDistances, cDistBlock, iBlock, pivNeigh, dist, iProcBlock);
 				iBlock.clear();
 				iProcBlock.clear();
 				cDistBlock = dist;
@@ -125,26 +123,26 @@ public final class MSSP {
 				}
 			}
 		}
-		stressPartitioning(pivots, hasNeighborTerm, includeOwnPivot, n, dDist, dWeights, iPosition, hangingPointer,
+		stressPartitioning(hasNeighborTerm, includeOwnPivot, n, stressData, bDist, bHanging, hangingPointer,
 				clAssignment, clSize, sDistances, cDistBlock, iBlock, pivNeigh, dist, iProcBlock);
 	}
 
-	private static void stressPartitioning(final int[] pivots, final boolean hasNeighborTerm,
-			final boolean includeOwnPivot, final int n, final DoubleArray[] dDist, final DoubleArray[] dWeights,
-			final IntArray[] iPosition, final int[] hangingPointer, final int[] clAssignment, final int[] clSize,
-			final DoubleArray[] sDistances, final double cDistBlock, final IntArray iBlock,
-			final HashSet<Integer>[] pivNeigh, final double dist, final IntArray iProcBlock) {
+	private static void stressPartitioning(final boolean hasNeighborTerm, final boolean includeOwnPivot,
+			final int n, final StressData stressData, final DoubleArray[] bDist, final IntArray[] bHanging,
+			final int[] hangingPointer, final int[] clAssignment, final int[] clSize, final DoubleArray[] sDistances,
+			final double cDistBlock, final IntArray iBlock, final HashSet<Integer>[] pivNeigh, final double dist,
+			final IntArray iProcBlock) {
 		assignToSmallestCluster(n, clAssignment, clSize, iBlock, sDistances, cDistBlock);
-		addStressTerms(pivots, hasNeighborTerm, n, dDist, dWeights, iPosition, hangingPointer, iProcBlock, pivNeigh,
+		addStressTerms(hasNeighborTerm, n, stressData, bDist, bHanging, hangingPointer, iProcBlock, pivNeigh,
 				cDistBlock, includeOwnPivot, clAssignment);
 		moveHangingPointer(sDistances, hangingPointer, dist / 2);
 
 	}
 
-	private static void addStressTerms(final int[] pivots, final boolean hasNeighborTerm, final int n,
-			final DoubleArray[] dDist, final DoubleArray[] dWeights, final IntArray[] iPosition,
-			final int[] hangingPointer, final IntArray iBlock, final HashSet<Integer>[] pivNeigh, final double dist,
-			final boolean includeOwnPivot, final int[] clAssignment) {
+	private static void addStressTerms(final boolean hasNeighborTerm, final int n, final StressData stressData,
+			final DoubleArray[] bDist, final IntArray[] bHanging, final int[] hangingPointer, final IntArray iBlock,
+			final HashSet<Integer>[] pivNeigh, final double dist, final boolean includeOwnPivot,
+			final int[] clAssignment) {
 		final int[] block = iBlock.getData();
 		for (int i = 0; i < iBlock.size(); i++) {
 			final int index = block[i];
@@ -152,14 +150,17 @@ public final class MSSP {
 			final int pivIndex = index / n;
 			// node index
 			final int nIndex = index - pivIndex * n;
-			// store the weight
+			// store the term
 			if ((dist > 0) && (includeOwnPivot || clAssignment[nIndex] != pivIndex)
 					&& (!hasNeighborTerm || !pivNeigh[pivIndex].contains(nIndex))) {
-				// store distance
-				dDist[nIndex].add(dist);
-				dWeights[nIndex].add(hangingPointer[pivIndex] / (dist * dist));
-				// store the position
-				iPosition[nIndex].add(pivots[pivIndex]);
+				// open a new distance block of the pivot, all its terms share the hanging pointer
+				final DoubleArray pivBlocks = bDist[pivIndex];
+				if (pivBlocks.size() == 0 || pivBlocks.getData()[pivBlocks.size() - 1] != dist) {
+					pivBlocks.add(dist);
+					bHanging[pivIndex].add(hangingPointer[pivIndex]);
+				}
+				// store the pivot slot and the distance block
+				stressData.addTerm(nIndex, pivIndex, pivBlocks.size() - 1);
 			}
 		}
 	}
@@ -0,0 +1,463 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package helpers;
+
+import helpers.StressFactory.FAR_FIELD;
+import helpers.StressFactory.REORDER_STYLE;
+import helpers.StressFactory.SAMPLING_STYLE;
+import helpers.StressFactory.SOLVER;
+import layout.MultiStartLayout;
+import data_structures.MappedStressData;
+
+/**
+ * Estimates the peak memory of each phase of the layout pipeline from the size
+ * of the graph and the options, and lowers the pivot counts to fit a memory
+ * budget. The estimates are upper bounds for a 64-bit JVM without compressed
+ * references and include native memory, but not the page cache used by the
+ * mapped storage.
+ * <p>
+ * The phases run one after another, so the peak is the maximum over the phases
+ * of the memory they need on top of what is kept from the previous phases,
+ * i.e., the graph and the layout.
+ */
+public final class MemoryPlanner {
+
+	private static final long REF = 8;
+
+	private static final long OBJECT_HEADER = 16;
+
+	private static final long ARRAY_HEADER = 16;
+
+	/**
+	 * Bytes per element of the heap used for shortest-path calculations, i.e.,
+	 * position, queue, value and marked array.
+	 */
+	private static final long HEAP_ELEMENT = 4 + 4 + 8 + 1;
+
+	/**
+	 * Bytes of an entry in an edge list while reading the graph.
+	 */
+	private static final long EDGE_ENTRY = REF + OBJECT_HEADER + 4 + 8;
+
+	/**
+	 * Bytes of a hash set entry of a boxed integer.
+	 */
+	private static final long HASH_ENTRY = 64;
+
+	/**
+	 * Assumed largest number of distance blocks per pivot of unweighted graphs,
+	 * which is bounded by the eccentricity of the pivot.
+	 */
+	private static final long UNWEIGHTED_BLOCKS = 4096;
+
+	/**
+	 * Smallest number of pivots PivotMDS works with.
+	 */
+	private static final int MIN_PIVOTS_MDS = 2;
+
+	private final long m_n;
+
+	private final long m_m;
+
+	private final Options m_options;
+
+	/**
+	 * @param n
+	 *            the number of vertices
+	 * @param m
+	 *            the number of edges
+	 * @param options
+	 *            the options to plan for, pivot counts are lowered in place
+	 */
+	public MemoryPlanner(final long n, final long m, final Options options) {
+		m_n = n;
+		m_m = m;
+		m_options = options;
+	}
+
+	/**
+	 * @return bytes of the graph once it is built
+	 */
+	public long estimateGraph() {
+		return m_n * (2 * REF + 2 * ARRAY_HEADER) + 2 * m_m * (4 + 8);
+	}
+
+	/**
+	 * @return bytes of the coarse graphs of the multilevel layout, which are
+	 *         about twice as large as the input together since the vertices
+	 *         halve per level but the edges shrink slower, and of the maps
+	 *         between the levels
+	 */
+	public long estimateHierarchy() {
+		if (!m_options.isMultilevel()) {
+			return 0;
+		}
+		return 2 * estimateGraph() + 2 * (4 + 4 + 8) * m_n;
+	}
+
+	/**
+	 * @return bytes of the multi-start on top of the sparse stress models it
+	 *         runs concurrently, i.e., the distances of the sampled sources and
+	 *         the layouts of all starts
+	 */
+	public long estimateStarts() {
+		if (m_options.getNumOfStarts() <= 1) {
+			return 0;
+		}
+		return MultiStartLayout.SAMPLE_SOURCES * (ARRAY_HEADER + 8 * m_n)
+				+ (m_options.getNumOfStarts() + 1) * estimateLayout();
+	}
+
+	/**
+	 * @return bytes needed while relabeling the vertices, including the graph
+	 */
+	public long estimateReorder() {
+		final REORDER_STYLE style = m_options.getReorderStyle();
+		if (style == REORDER_STYLE.NONE) {
+			return 0;
+		}
+		// both graphs, the order and its inverse
+		long bytes = 2 * estimateGraph() + 2 * 4 * m_n;
+		if (style == REORDER_STYLE.HILBERT) {
+			// the layout, its relabeled copy and the curve keys
+			bytes += 2 * 2 * 8 * m_n + 8 * m_n;
+		} else {
+			// the vertices by degree and the visited flags
+			bytes += 8 * m_n + m_n;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return bytes needed while reading the graph, including the graph itself
+	 */
+	public long estimateRead() {
+		// the edge lists grow by half of their size
+		return m_n * (REF + OBJECT_HEADER + ARRAY_HEADER + 8) + 3 * m_m * EDGE_ENTRY + estimateGraph();
+	}
+
+	/**
+	 * @return bytes of the layout
+	 */
+	public long estimateLayout() {
+		return 2 * 8 * m_n;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of PivotMDS pivots
+	 * @return bytes needed by PivotMDS on top of the graph
+	 */
+	public long estimatePivMDS(final long numOfPivots) {
+		if (m_options.hasStartLayout()) {
+			// the given layout replaces PivotMDS
+			return 0;
+		}
+		// the multilevel layout only lays out the coarsest level
+		final long n = m_options.isMultilevel() ? Math.min(m_options.getCoarsestSize(), m_n) : m_n;
+		final long k = Math.min(numOfPivots, n);
+		// distance matrix, shortest-path heap, minimum distances, Gram matrix
+		// and the coordinates in both representations
+		return k * (ARRAY_HEADER + 8 * n) + HEAP_ELEMENT * n + 8 * n + 8 * k * k + 2 * 2 * 8 * n;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @param numOfFeatures
+	 *            the number of k-means features
+	 * @return bytes needed by the sampler on top of the graph and the layout
+	 */
+	public long estimateSampling(final long numOfPivots, final long numOfFeatures) {
+		final long p = Math.min(numOfPivots, m_n);
+		if (!m_options.isPartitioned()) {
+			// vertices to process and clustering
+			return 8 * m_n + estimateSampler(m_n, p, numOfFeatures);
+		}
+		// the regions sample concurrently, each in its part of the distance
+		// matrix but with a shortest-path heap over all vertices
+		final long regions = Math.min(m_options.getNumOfPartitions(), p);
+		final long concurrent = Math.min(regions, m_options.getNumOfThreads());
+		// regions, their vertices and the queue of the partition
+		return 3 * 4 * m_n + concurrent * estimateSampler((m_n + regions - 1) / regions, p / regions + 1,
+				numOfFeatures);
+	}
+
+	private long estimateSampler(final long rows, final long p, final long numOfFeatures) {
+		long bytes = 0;
+		final SAMPLING_STYLE style = m_options.getSampleStyle();
+		if (style == SAMPLING_STYLE.MAXMIN || style == SAMPLING_STYLE.KMEANS) {
+			final long columns = style == SAMPLING_STYLE.MAXMIN ? p : Math.min(numOfFeatures, p);
+			// distance matrix, minimum distances and shortest-path heap
+			bytes += rows * (ARRAY_HEADER + 8 * columns) + 8 * m_n + HEAP_ELEMENT * m_n;
+			if (style == SAMPLING_STYLE.KMEANS) {
+				// cluster assignment, mean features and initial samples
+				bytes += 4 * m_n + p * (ARRAY_HEADER + 8 * columns) + p * HASH_ENTRY;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @return bytes of the stress data
+	 */
+	public long estimateStressData(final long numOfPivots) {
+		final long p = Math.min(numOfPivots, m_n);
+		final boolean weighted = m_options.isWeighted();
+		final long terms = m_n * p;
+		final long blockWidth = weighted ? 4 : 1;
+		// normalization and pivot-id table
+		long bytes = 8 * m_n + 4 * p;
+		// distance-block tables, which grow by doubling
+		final long blocks = weighted ? m_n : Math.min(m_n, UNWEIGHTED_BLOCKS);
+		bytes += 2 * p * blocks * (8 + 4);
+		switch (m_options.getStorageStyle()) {
+		case HEAP:
+			// slot and block arrays of each vertex
+			bytes += m_n * (2 * REF + 2 * OBJECT_HEADER + 2 * ARRAY_HEADER + 16) + terms * (2 + blockWidth);
+			break;
+		case OFFHEAP:
+			bytes += 4 * m_n + terms * (2 + blockWidth);
+			break;
+		case MAPPED:
+			bytes += 4 * m_n + 8 * m_n + MappedStressData.bufferBytes(m_n, (int) p);
+			break;
+		default:
+			throw new IllegalArgumentException("this enum is not existent");
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @return bytes needed by the multi-source shortest-path calculation on
+	 *         top of the graph, the layout and the stress data
+	 */
+	public long estimateMSSP(final long numOfPivots) {
+		final long p = Math.min(numOfPivots, m_n);
+		if (m_options.isProgressive()) {
+			// the previous stress data while the extended one is built, the
+			// shortest-path heap of a single pivot, marked and excluded
+			// vertices, and the clusters with their distances in both orders
+			return estimateStressData(numOfPivots) + HEAP_ELEMENT * m_n + m_n + 4 * m_n + 4 * m_n + 2 * 8 * m_n;
+		}
+		final long avgDegree = m_n == 0 ? 0 : (2 * m_m + m_n - 1) / m_n;
+		// joint heap of all pivots, cluster assignment, visited nodes, sorted
+		// cluster distances, which are allocated for all vertices per pivot,
+		// and pivot neighborhoods
+		final long sortedDistances = p * (OBJECT_HEADER + ARRAY_HEADER + 8 * m_n);
+		return HEAP_ELEMENT * p * m_n + 4 * m_n + 4 * m_n + sortedDistances + p * (avgDegree + 1) * HASH_ENTRY;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @return bytes needed by the iterations on top of the graph, the layout
+	 *         and the stress data
+	 */
+	public long estimateIteration(final long numOfPivots) {
+		final long p = Math.min(numOfPivots, m_n);
+		final long blocks = m_options.isWeighted() ? m_n : Math.min(m_n, UNWEIGHTED_BLOCKS);
+		final long threads = m_options.getNumOfThreads();
+		// separate x- and y-coordinates, a second copy for the parallel sweep
+		final long coordinates = (threads > 1 ? 2 : 1) * 2 * 8 * m_n;
+		// the visiting order of the gradient descent, or the start and plain
+		// iterate of the accelerated majorization
+		long order = 0;
+		if (m_options.getSolver() == SOLVER.SGD) {
+			order = 4 * m_n;
+		} else if (m_options.getMomentum() > 0) {
+			order = 2 * 2 * 8 * m_n;
+		}
+		// the start and best layout kept for the deadline of a time budget
+		if (m_options.hasTimeBudget()) {
+			order += (m_options.getMomentum() > 0 && m_options.getSolver() != SOLVER.SGD ? 1 : 2) * 2 * 8 * m_n;
+		}
+		// the quadtree, the closest pivots and the marks and pivot distances of
+		// each thread of the Barnes-Hut far field
+		if (m_options.getFarField() == FAR_FIELD.BARNES_HUT) {
+			order += 2 * (2 * 4 + 8) * m_n + (2 * m_n - 1) * (4 * 4 + 3 * 8) + threads * (4 * m_n + 8 * p);
+		}
+		// the two active flags, the last stress and the pivot slot of each
+		// vertex of the active set
+		if (m_options.hasActiveSet()) {
+			order += (2 + 8 + 4) * m_n;
+		}
+		// pivot coordinates, pivot order, block weights and term buffers
+		return coordinates + order + 2 * 8 * p + 4 * p + 8 * p * blocks + threads * 2 * 4 * p;
+	}
+
+	/**
+	 * @return bytes needed to calculate the stress of the final layout on top
+	 *         of the graph and the layout
+	 */
+	public long estimateStress() {
+		if (!m_options.calcStress()) {
+			return 0;
+		}
+		return m_n * (ARRAY_HEADER + 8 * m_n) + HEAP_ELEMENT * m_n;
+	}
+
+	private long estimateSparseStress(final long numOfPivots, final long numOfFeatures) {
+		final long stressData = estimateStressData(numOfPivots);
+		// the progressive mode extends the stress data between iterations
+		final long terms = m_options.isProgressive() ? estimateMSSP(numOfPivots) + estimateIteration(numOfPivots)
+				: Math.max(estimateMSSP(numOfPivots), estimateIteration(numOfPivots));
+		return estimateGraph() + estimateHierarchy() + estimateLayout() + estimateStarts()
+				+ getConcurrentStarts() * Math.max(estimateSampling(numOfPivots, numOfFeatures), stressData + terms);
+	}
+
+	/**
+	 * @return the estimated peak memory in bytes of the current options
+	 */
+	public long estimatePeak() {
+		long peak = Math.max(estimateRead(), estimateReorder());
+		peak = Math.max(peak, estimateGraph() + estimatePivMDS(m_options.getNumOfPivotsMDS()));
+		peak = Math.max(peak, estimateSparseStress(m_options.getNumOfPiv(), getNumOfFeatures()));
+		return Math.max(peak, estimateGraph() + estimateLayout() + estimateStress());
+	}
+
+	/**
+	 * Lowers the number of pivots of PivotMDS and of the sparse stress model,
+	 * and the number of k-means features as far as necessary to fit the
+	 * budget.
+	 * 
+	 * @param budget
+	 *            the memory budget in bytes
+	 * @return whether the options have been changed
+	 * @throws IllegalArgumentException
+	 *             if the layout does not fit the budget at all
+	 */
+	public boolean fit(final long budget) throws IllegalArgumentException {
+		if (estimateRead() > budget) {
+			throw new IllegalArgumentException("memory budget exceeded: reading the graph requires about "
+					+ toMiB(estimateRead()) + " MiB");
+		}
+		if (estimateGraph() + estimateLayout() + estimateStress() > budget) {
+			throw new IllegalArgumentException("memory budget exceeded: calculating the stress requires about "
+					+ toMiB(estimateGraph() + estimateLayout() + estimateStress()) + " MiB");
+		}
+		if (estimateReorder() > budget) {
+			throw new IllegalArgumentException("memory budget exceeded: relabeling the vertices requires about "
+					+ toMiB(estimateReorder()) + " MiB");
+		}
+		boolean changed = false;
+		// PivotMDS
+		int low = MIN_PIVOTS_MDS;
+		int high = m_options.getNumOfPivotsMDS();
+		if (estimateGraph() + estimatePivMDS(low) > budget) {
+			throw new IllegalArgumentException("memory budget exceeded: PivotMDS requires about "
+					+ toMiB(estimateGraph() + estimatePivMDS(low)) + " MiB with " + low + " pivots");
+		}
+		while (low < high) {
+			final int mid = (int) (((long) low + high + 1) / 2);
+			if (estimateGraph() + estimatePivMDS(mid) <= budget) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (low < m_options.getNumOfPivotsMDS()) {
+			m_options.setNumPivotsMDS(low);
+			changed = true;
+		}
+		// sparse stress
+		final int features = getNumOfFeatures();
+		low = 1;
+		high = m_options.getNumOfPiv();
+		if (estimateSparseStress(low, Math.min(features, low)) > budget) {
+			throw new IllegalArgumentException("memory budget exceeded: the sparse stress model requires about "
+					+ toMiB(estimateSparseStress(low, Math.min(features, low))) + " MiB with " + low + " pivot");
+		}
+		while (low < high) {
+			final int mid = (int) (((long) low + high + 1) / 2);
+			if (estimateSparseStress(mid, Math.min(features, mid)) <= budget) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (low < m_options.getNumOfPiv()) {
+			m_options.setNumOfPiv(low);
+			if (m_options.getSampleStyle() == SAMPLING_STYLE.KMEANS && features > low) {
+				m_options.setNumberOfKMeansSources(low);
+			}
+			changed = true;
+		}
+		return changed;
+	}
+
+	private long getConcurrentStarts() {
+		return Math.min(m_options.getNumOfStarts(), m_options.getNumOfThreads());
+	}
+
+	private int getNumOfFeatures() {
+		return Math.max(0, m_options.getNumOfKMeansSources());
+	}
+
+	public static long toMiB(final long bytes) {
+		return (bytes + (1 << 20) - 1) >> 20;
+	}
+
+	/**
+	 * Parses a size given in bytes or with one of the suffixes k, m, g or t.
+	 * 
+	 * @param size
+	 *            the size
+	 * @return the size in bytes
+	 */
+	public static long parseSize(final String size) {
+		final String s = size.trim().toLowerCase();
+		if (s.isEmpty()) {
+			throw new IllegalArgumentException("size is empty");
+		}
+		int shift = 0;
+		switch (s.charAt(s.length() - 1)) {
+		case 't':
+			shift = 40;
+			break;
+		case 'g':
+			shift = 30;
+			break;
+		case 'm':
+			shift = 20;
+			break;
+		case 'k':
+			shift = 10;
+			break;
+		default:
+			break;
+		}
+		final String number = shift == 0 ? s : s.substring(0, s.length() - 1);
+		return (long) (Double.parseDouble(number) * (1L << shift));
+	}
+
+	@Override
+	public String toString() {
+		return "estimated peak memory: " + toMiB(estimatePeak()) + " MiB (graph "
+				+ toMiB(estimateRead()) + ", PivotMDS "
+				+ toMiB(estimatePivMDS(m_options.getNumOfPivotsMDS())) + ", sampling "
+				+ toMiB(estimateSampling(m_options.getNumOfPiv(), getNumOfFeatures())) + ", MSSP "
+				+ toMiB(estimateMSSP(m_options.getNumOfPiv())) + ", stress data "
+				+ toMiB(estimateStressData(m_options.getNumOfPiv())) + ")";
+	}
+}
@@ -18,7 +18,12 @@
  */
 package helpers;
 
+import helpers.StressFactory.EIGEN_SOLVER;
+import helpers.StressFactory.FAR_FIELD;
+import helpers.StressFactory.REORDER_STYLE;
 import helpers.StressFactory.SAMPLING_STYLE;
+import helpers.StressFactory.SOLVER;
+import helpers.StressFactory.STORAGE_STYLE;
 
 import java.io.File;
 import java.io.PrintStream;
@@ -31,6 +36,10 @@ public class Options {
 
 	private static final int PIVOTS_MDS = 200;
 
+	private static final int LEVEL_ITERATIONS = 10;
+
+	private static final int HALO = 2;
+
 	private int m_numOfPiv;
 
 	private int m_numOfIter;
@@ -55,6 +64,50 @@ public class Options {
 
 	private boolean m_calcStress;
 
+	private STORAGE_STYLE m_storageStyle;
+
+	private File m_spillDirectory;
+
+	private long m_memoryBudget;
+
+	private int m_numOfThreads;
+
+	private SOLVER m_solver;
+
+	private double m_momentum;
+
+	private REORDER_STYLE m_reorderStyle;
+
+	private long m_timeBudget;
+
+	private int m_coarsestSize;
+
+	private int m_levelIter;
+
+	private int m_progressivePivots;
+
+	private int m_numOfStarts;
+
+	private FAR_FIELD m_farField;
+
+	private int m_numOfPartitions;
+
+	private File m_layoutFile;
+
+	private File m_focusFile;
+
+	private int m_halo;
+
+	private File m_stateFile;
+
+	private File m_deltaFile;
+
+	private File m_binaryLayoutFile;
+
+	private double m_activeThreshold;
+
+	private EIGEN_SOLVER m_eigenSolver;
+
 	public Options() {
 		m_numOfPiv = -1;
 		m_numOfIter = -1;
@@ -67,6 +120,69 @@ public class Options {
 		m_numPivotsMDS = PIVOTS_MDS;
 		m_seed = SEED;
 		m_calcStress = false;
+		m_storageStyle = STORAGE_STYLE.HEAP;
+		m_spillDirectory = null;
+		m_memoryBudget = -1;
+		m_numOfThreads = 1;
+		m_solver = SOLVER.MAJORIZATION;
+		m_momentum = 0;
+		m_reorderStyle = REORDER_STYLE.NONE;
+		m_timeBudget = -1;
+		m_coarsestSize = 0;
+		m_levelIter = LEVEL_ITERATIONS;
+		m_progressivePivots = 0;
+		m_numOfStarts = 1;
+		m_farField = FAR_FIELD.PIVOTS;
+		m_numOfPartitions = 0;
+		m_layoutFile = null;
+		m_focusFile = null;
+		m_halo = HALO;
+		m_stateFile = null;
+		m_deltaFile = null;
+		m_binaryLayoutFile = null;
+		m_activeThreshold = 0;
+		m_eigenSolver = EIGEN_SOLVER.SUBSPACE;
+	}
+
+	/**
+	 * @param options
+	 *            the options to copy
+	 */
+	public Options(final Options options) {
+		m_numOfPiv = options.m_numOfPiv;
+		m_numOfIter = options.m_numOfIter;
+		m_bC = options.m_bC;
+		m_factor = options.m_factor;
+		m_sampleStyle = options.m_sampleStyle;
+		m_file = options.m_file;
+		m_showHelp = options.m_showHelp;
+		m_weightedGraph = options.m_weightedGraph;
+		m_numPivotsMDS = options.m_numPivotsMDS;
+		m_seed = options.m_seed;
+		m_numOfKMeansSources = options.m_numOfKMeansSources;
+		m_calcStress = options.m_calcStress;
+		m_storageStyle = options.m_storageStyle;
+		m_spillDirectory = options.m_spillDirectory;
+		m_memoryBudget = options.m_memoryBudget;
+		m_numOfThreads = options.m_numOfThreads;
+		m_solver = options.m_solver;
+		m_momentum = options.m_momentum;
+		m_reorderStyle = options.m_reorderStyle;
+		m_timeBudget = options.m_timeBudget;
+		m_coarsestSize = options.m_coarsestSize;
+		m_levelIter = options.m_levelIter;
+		m_progressivePivots = options.m_progressivePivots;
+		m_numOfStarts = options.m_numOfStarts;
+		m_farField = options.m_farField;
+		m_numOfPartitions = options.m_numOfPartitions;
+		m_layoutFile = options.m_layoutFile;
+		m_focusFile = options.m_focusFile;
+		m_halo = options.m_halo;
+		m_stateFile = options.m_stateFile;
+		m_deltaFile = options.m_deltaFile;
+		m_binaryLayoutFile = options.m_binaryLayoutFile;
+		m_activeThreshold = options.m_activeThreshold;
+		m_eigenSolver = options.m_eigenSolver;
 	}
 
 	public Options(String[] args) {
@@ -89,7 +205,29 @@ public class Options {
 		pW.println("  --features FEATURES - number of entries sampled from the shortest-path distance matrix");
 		pW.println("  -r SEED             - SEED value to be used by the sampler (default 0)");
 		pW.println("  -m MDS              - number of pivots used by PivotMDS (default 200)");
+		pW.println("  --eigensolver EIG   - eigensolver of PivotMDS (power, subspace) (default subspace)");
 		pW.println("  -c                  - calculates the stress value of the final layout");
+		pW.println("  --storage STORAGE   - storage of the sparse stress terms (heap, offheap, mapped) (default heap)");
+		pW.println("  --spill-dir DIR     - directory of the term files of the mapped storage (default temporary directory)");
+		pW.println("  --memory-budget B   - lower P, MDS and FEATURES to fit B bytes (suffixes k, m, g, t), or refuse if impossible");
+		pW.println("  -t THREADS          - number of threads of the stress iterations (default 1)");
+		pW.println("  --solver SOLVER     - optimizer of the sparse stress (majorization, sgd) (default majorization)");
+		pW.println("  --momentum BETA     - extrapolate the majorization iterations with momentum up to BETA in [0, 1) (default 0)");
+		pW.println("  --active-set EPS    - skip vertices that moved less than EPS edge lengths until a neighbor or pivot moves (default 0, i.e., off)");
+		pW.println("  --reorder ORDER     - relabel the vertices for memory locality (none, bfs, rcm, hilbert) (default none)");
+		pW.println("  --time-budget T     - lower P, MDS and FEATURES to fit T seconds (suffixes ms, s, m, h) and stop iterating in time");
+		pW.println("  --multilevel SIZE   - start from a layout of coarsened graphs down to SIZE vertices (default 0, i.e., off)");
+		pW.println("  --level-iter ITER   - iterations on each intermediate level of the multilevel layout (default 10)");
+		pW.println("  --progressive P0    - start the majorization with P0 of the P pivots and double them as convergence slows (default 0, i.e., off)");
+		pW.println("  --starts K          - lay out with K seeds on THREADS threads and keep the layout of least sampled stress (default 1)");
+		pW.println("  --far-field FIELD   - model of the distant vertices (pivots, barnes-hut) (default pivots)");
+		pW.println("  --partitions R      - sample the pivots of R graph regions concurrently on THREADS threads (default 0, i.e., off)");
+		pW.println("  --layout FILE       - existing layout of the graph, text or binary, to start from instead of PivotMDS");
+		pW.println("  --binary-out FILE   - also write the final layout to FILE in the binary format of --layout");
+		pW.println("  --focus FILE        - relayout only these vertices and their halo, the others keep their --layout position");
+		pW.println("  --halo K            - hops around the focus vertices that are laid out as well (default 2)");
+		pW.println("  --state FILE        - pivots and their distances, read with --delta and written after the layout");
+		pW.println("  --delta FILE        - edge changes since the --state and --layout of the previous run, +u,v[,w] or -u,v");
 		pW.println("  -h, --help, -?      - print help message");
 	}
 
@@ -147,6 +285,10 @@ public class Options {
 				setNumPivotsMDS(Integer.parseInt(args[i + 1]));
 				i += 2;
 				break;
+			case "--eigensolver":
+				setEigenSolver(EIGEN_SOLVER.valueOf(args[i + 1].toUpperCase()));
+				i += 2;
+				break;
 			case "--features":
 				setNumberOfKMeansSources(Integer.parseInt(args[i + 1]));
 				i += 2;
@@ -155,6 +297,90 @@ public class Options {
 				setCalcStress(true);
 				i += 1;
 				break;
+			case "--storage":
+				setStorageStyle(STORAGE_STYLE.valueOf(args[i + 1].toUpperCase()));
+				i += 2;
+				break;
+			case "--spill-dir":
+				setSpillDirectory(new File(args[i + 1]));
+				i += 2;
+				break;
+			case "--memory-budget":
+				setMemoryBudget(MemoryPlanner.parseSize(args[i + 1]));
+				i += 2;
+				break;
+			case "-t":
+				setNumOfThreads(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
+			case "--solver":
+				setSolver(SOLVER.valueOf(args[i + 1].toUpperCase()));
+				i += 2;
+				break;
+			case "--active-set":
+				setActiveThreshold(Double.parseDouble(args[i + 1]));
+				i += 2;
+				break;
+			case "--momentum":
+				setMomentum(Double.parseDouble(args[i + 1]));
+				i += 2;
+				break;
+			case "--reorder":
+				setReorderStyle(REORDER_STYLE.valueOf(args[i + 1].toUpperCase()));
+				i += 2;
+				break;
+			case "--time-budget":
+				setTimeBudget(TimePlanner.parseTime(args[i + 1]));
+				i += 2;
+				break;
+			case "--multilevel":
+				setCoarsestSize(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
+			case "--level-iter":
+				setLevelIter(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
+			case "--starts":
+				setNumOfStarts(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
+			case "--partitions":
+				setNumOfPartitions(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
+			case "--layout":
+				setLayoutFile(new File(args[i + 1]));
+				i += 2;
+				break;
+			case "--binary-out":
+				setBinaryLayoutFile(new File(args[i + 1]));
+				i += 2;
+				break;
+			case "--focus":
+				setFocusFile(new File(args[i + 1]));
+				i += 2;
+				break;
+			case "--halo":
+				setHalo(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
+			case "--state":
+				setStateFile(new File(args[i + 1]));
+				i += 2;
+				break;
+			case "--delta":
+				setDeltaFile(new File(args[i + 1]));
+				i += 2;
+				break;
+			case "--far-field":
+				setFarField(FAR_FIELD.valueOf(args[i + 1].toUpperCase().replace('-', '_')));
+				i += 2;
+				break;
+			case "--progressive":
+				setProgressivePivots(Integer.parseInt(args[i + 1]));
+				i += 2;
+				break;
 			default:
 				setFile(new File(args[i]));
 				++i;
@@ -171,6 +397,293 @@ public class Options {
 		return m_calcStress;
 	}
 
+	public STORAGE_STYLE getStorageStyle() {
+		return m_storageStyle;
+	}
+
+	public void setStorageStyle(final STORAGE_STYLE storageStyle) {
+		Objects.requireNonNull(storageStyle, "storage option is not valid "
+				+ Arrays.toString(STORAGE_STYLE.values()).replaceAll("\\[\\]", ""));
+		m_storageStyle = storageStyle;
+	}
+
+	public File getSpillDirectory() {
+		return m_spillDirectory;
+	}
+
+	public void setSpillDirectory(final File spillDirectory) {
+		if (!spillDirectory.isDirectory()) {
+			throw new IllegalArgumentException("spill directory not found");
+		}
+		m_spillDirectory = spillDirectory;
+	}
+
+	public long getMemoryBudget() {
+		return m_memoryBudget;
+	}
+
+	public boolean hasMemoryBudget() {
+		return m_memoryBudget > 0;
+	}
+
+	public void setMemoryBudget(final long memoryBudget) {
+		if (memoryBudget <= 0) {
+			throw new IllegalArgumentException("memory budget has to be greater than 0");
+		}
+		m_memoryBudget = memoryBudget;
+	}
+
+	public int getNumOfThreads() {
+		return m_numOfThreads;
+	}
+
+	public void setNumOfThreads(final int numOfThreads) {
+		if (numOfThreads <= 0) {
+			throw new IllegalArgumentException("number of threads has to be greater than 0");
+		}
+		m_numOfThreads = numOfThreads;
+	}
+
+	public EIGEN_SOLVER getEigenSolver() {
+		return m_eigenSolver;
+	}
+
+	public void setEigenSolver(final EIGEN_SOLVER eigenSolver) {
+		Objects.requireNonNull(eigenSolver, "eigensolver option is not valid "
+				+ Arrays.toString(EIGEN_SOLVER.values()).replaceAll("\\[\\]", ""));
+		m_eigenSolver = eigenSolver;
+	}
+
+	public SOLVER getSolver() {
+		return m_solver;
+	}
+
+	public void setSolver(final SOLVER solver) {
+		Objects.requireNonNull(solver, "solver option is not valid "
+				+ Arrays.toString(SOLVER.values()).replaceAll("\\[\\]", ""));
+		m_solver = solver;
+	}
+
+	public double getActiveThreshold() {
+		return m_activeThreshold;
+	}
+
+	/**
+	 * @return whether the majorization skips the vertices that have converged
+	 */
+	public boolean hasActiveSet() {
+		return m_activeThreshold > 0;
+	}
+
+	public void setActiveThreshold(final double activeThreshold) {
+		if (!(activeThreshold >= 0)) {
+			throw new IllegalArgumentException("active set threshold cannot be negative");
+		}
+		m_activeThreshold = activeThreshold;
+	}
+
+	public double getMomentum() {
+		return m_momentum;
+	}
+
+	public void setMomentum(final double momentum) {
+		if (!(momentum >= 0 && momentum < 1)) {
+			throw new IllegalArgumentException("momentum has to be in [0, 1)");
+		}
+		m_momentum = momentum;
+	}
+
+	public REORDER_STYLE getReorderStyle() {
+		return m_reorderStyle;
+	}
+
+	public void setReorderStyle(final REORDER_STYLE reorderStyle) {
+		Objects.requireNonNull(reorderStyle, "reorder option is not valid "
+				+ Arrays.toString(REORDER_STYLE.values()).replaceAll("\\[\\]", ""));
+		m_reorderStyle = reorderStyle;
+	}
+
+	public long getTimeBudget() {
+		return m_timeBudget;
+	}
+
+	public boolean hasTimeBudget() {
+		return m_timeBudget > 0;
+	}
+
+	public void setTimeBudget(final long timeBudget) {
+		if (timeBudget <= 0) {
+			throw new IllegalArgumentException("time budget has to be greater than 0");
+		}
+		m_timeBudget = timeBudget;
+	}
+
+	public int getCoarsestSize() {
+		return m_coarsestSize;
+	}
+
+	public boolean isMultilevel() {
+		return m_coarsestSize > 0;
+	}
+
+	public void setCoarsestSize(final int coarsestSize) {
+		if (coarsestSize <= 0) {
+			throw new IllegalArgumentException("size of the coarsest level has to be greater than 0");
+		}
+		m_coarsestSize = coarsestSize;
+	}
+
+	public int getLevelIter() {
+		return m_levelIter;
+	}
+
+	public void setLevelIter(final int levelIter) {
+		if (levelIter <= 0) {
+			throw new IllegalArgumentException("number of iterations per level has to be greater than 0");
+		}
+		m_levelIter = levelIter;
+	}
+
+	public int getProgressivePivots() {
+		return m_progressivePivots;
+	}
+
+	public boolean isProgressive() {
+		return m_progressivePivots > 0;
+	}
+
+	public void setProgressivePivots(final int progressivePivots) {
+		if (progressivePivots <= 0) {
+			throw new IllegalArgumentException("number of initial pivots has to be greater than 0");
+		}
+		m_progressivePivots = progressivePivots;
+	}
+
+	public int getNumOfStarts() {
+		return m_numOfStarts;
+	}
+
+	public void setNumOfStarts(final int numOfStarts) {
+		if (numOfStarts <= 0) {
+			throw new IllegalArgumentException("number of starts has to be greater than 0");
+		}
+		m_numOfStarts = numOfStarts;
+	}
+
+	public int getNumOfPartitions() {
+		return m_numOfPartitions;
+	}
+
+	/**
+	 * @return whether the pivots are sampled per region of a partition
+	 */
+	public boolean isPartitioned() {
+		return m_numOfPartitions > 1;
+	}
+
+	public void setNumOfPartitions(final int numOfPartitions) {
+		if (numOfPartitions < 0) {
+			throw new IllegalArgumentException("number of partitions cannot be negative");
+		}
+		m_numOfPartitions = numOfPartitions;
+	}
+
+	public File getLayoutFile() {
+		return m_layoutFile;
+	}
+
+	public void setLayoutFile(final File layoutFile) {
+		if (!layoutFile.isFile()) {
+			throw new IllegalArgumentException("layout file not found");
+		}
+		m_layoutFile = layoutFile;
+	}
+
+	/**
+	 * @return whether the iterations start from the given layout instead of
+	 *         PivotMDS
+	 */
+	public boolean hasStartLayout() {
+		return m_layoutFile != null;
+	}
+
+	public File getBinaryLayoutFile() {
+		return m_binaryLayoutFile;
+	}
+
+	public void setBinaryLayoutFile(final File binaryLayoutFile) {
+		m_binaryLayoutFile = binaryLayoutFile;
+	}
+
+	public File getFocusFile() {
+		return m_focusFile;
+	}
+
+	/**
+	 * @return whether only the focus vertices and their halo are laid out
+	 */
+	public boolean isFocused() {
+		return m_focusFile != null;
+	}
+
+	public void setFocusFile(final File focusFile) {
+		if (!focusFile.isFile()) {
+			throw new IllegalArgumentException("focus file not found");
+		}
+		m_focusFile = focusFile;
+	}
+
+	public int getHalo() {
+		return m_halo;
+	}
+
+	public void setHalo(final int halo) {
+		if (halo < 0) {
+			throw new IllegalArgumentException("halo cannot be negative");
+		}
+		m_halo = halo;
+	}
+
+	public File getStateFile() {
+		return m_stateFile;
+	}
+
+	public boolean hasState() {
+		return m_stateFile != null;
+	}
+
+	public void setStateFile(final File stateFile) {
+		m_stateFile = stateFile;
+	}
+
+	public File getDeltaFile() {
+		return m_deltaFile;
+	}
+
+	/**
+	 * @return whether the previous layout is updated by an edge delta
+	 */
+	public boolean isIncremental() {
+		return m_deltaFile != null;
+	}
+
+	public void setDeltaFile(final File deltaFile) {
+		if (!deltaFile.isFile()) {
+			throw new IllegalArgumentException("delta file not found");
+		}
+		m_deltaFile = deltaFile;
+	}
+
+	public FAR_FIELD getFarField() {
+		return m_farField;
+	}
+
+	public void setFarField(final FAR_FIELD farField) {
+		Objects.requireNonNull(farField, "far field option is not valid "
+				+ Arrays.toString(FAR_FIELD.values()).replaceAll("\\[\\]", ""));
+		m_farField = farField;
+	}
+
 	public int getNumOfPiv() {
 		return m_numOfPiv;
 	}
@@ -340,6 +853,31 @@ public class Options {
 		if (m_numOfKMeansSources < 0 && m_sampleStyle == SAMPLING_STYLE.KMEANS) {
 			failure += "the number of features for k-means sampling has to be specified";
 		}
+		if (m_progressivePivots > 0 && m_solver != SOLVER.MAJORIZATION) {
+			failure += "progressive pivots require the majorization solver\n";
+		}
+		if (m_activeThreshold > 0 && (m_solver != SOLVER.MAJORIZATION || m_farField != FAR_FIELD.PIVOTS)) {
+			failure += "the active set requires the majorization solver and the pivot far field\n";
+		}
+		if (m_farField == FAR_FIELD.BARNES_HUT && m_solver != SOLVER.MAJORIZATION) {
+			failure += "the Barnes-Hut far field requires the majorization solver\n";
+		}
+		if (m_focusFile != null && m_layoutFile == null) {
+			failure += "the focus mode requires a layout\n";
+		}
+		if (m_layoutFile != null && isMultilevel()) {
+			failure += "a start layout does not support --multilevel\n";
+		}
+		if (m_deltaFile != null && (m_stateFile == null || m_layoutFile == null)) {
+			failure += "the incremental mode requires a state and a layout\n";
+		}
+		if (m_stateFile != null && (m_focusFile != null || m_progressivePivots > 0 || m_numOfStarts > 1
+				|| m_reorderStyle != REORDER_STYLE.NONE)) {
+			failure += "a state does not support --focus, --progressive, --starts and --reorder\n";
+		}
+		if (m_focusFile != null && (isMultilevel() || m_numOfStarts > 1 || m_reorderStyle != REORDER_STYLE.NONE)) {
+			failure += "the focus mode does not support --multilevel, --starts and --reorder\n";
+		}
 		if (!failure.isEmpty()) {
 			throw new IllegalArgumentException(failure);
 		}
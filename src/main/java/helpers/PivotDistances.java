@@ -0,0 +1,338 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package helpers;
+
+import graph.EdgeDelta;
+import graph.Graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import data_structures.Heap;
+import data_structures.IntArray;
+import data_structures.StressData;
+
+/**
+ * The shortest-path distances of the pivots to all vertices, kept between
+ * runs on an evolving graph. An edge delta is applied by a dynamic
+ * shortest-path search per pivot: the vertices whose shortest paths all used
+ * a deleted edge are recomputed from their unaffected neighbors, and the
+ * decreases due to inserted edges are propagated from their endpoints. Only
+ * the vertices whose distance may change are visited.
+ */
+public final class PivotDistances {
+
+	/** marks the files of the state */
+	private static final int MAGIC = 0x53535044;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final int[] m_pivots;
+
+	/** per pivot the distance of each vertex, infinity if unreachable */
+	private final double[][] m_distances;
+
+	public PivotDistances(final int[] pivots, final double[][] distances) {
+		m_pivots = pivots;
+		m_distances = distances;
+	}
+
+	/**
+	 * @return the distances of the given pivots by a shortest-path search
+	 *         from each
+	 */
+	public static PivotDistances compute(final Graph g, final int[] pivots) {
+		final double[][] distances = new double[pivots.length][g.n()];
+		final Heap heap = new Heap(g.n());
+		for (int i = 0; i < pivots.length; i++) {
+			final double[] distance = distances[i];
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			heap.upsert(pivots[i], 0);
+			while (!heap.isEmpty()) {
+				final int index = heap.pop();
+				distance[index] = heap.value(index);
+				final int[] neighbors = g.getNeighbors(index);
+				final double[] weights = g.getWeights(index);
+				for (int j = 0; j < neighbors.length; j++) {
+					if (distance[neighbors[j]] == Double.POSITIVE_INFINITY) {
+						heap.upsert(neighbors[j], distance[index] + weights[j]);
+					}
+				}
+			}
+			for (int v = 0; v < g.n(); v++) {
+				heap.reset(v);
+			}
+		}
+		return new PivotDistances(pivots, distances);
+	}
+
+	public int[] getPivots() {
+		return m_pivots;
+	}
+
+	/**
+	 * @return the stress data of the pivots, built from the distances without
+	 *         any shortest-path search
+	 */
+	public StressData createStressData(final Graph g, final Options options) {
+		return new IncrementalMSSP(g, m_pivots, m_distances, options).extend(m_pivots.length);
+	}
+
+	/**
+	 * Updates the distances to a changed graph.
+	 * 
+	 * @param before
+	 *            the graph the distances are of
+	 * @param after
+	 *            the graph after the delta
+	 * @param delta
+	 *            the delta between the graphs
+	 * @return the number of distance updates
+	 */
+	public long update(final Graph before, final Graph after, final EdgeDelta delta) {
+		final int n = after.n();
+		final Heap heap = new Heap(n);
+		final boolean[] affected = new boolean[n];
+		final boolean[] queued = new boolean[n];
+		final IntArray visited = new IntArray(16);
+		long changed = 0;
+		for (int i = 0; i < m_pivots.length; i++) {
+			final double[] distance = m_distances[i];
+			changed += removeEdges(before, after, delta, m_pivots[i], distance, heap, affected, queued, visited);
+			changed += insertEdges(after, delta, distance, heap, queued, visited);
+		}
+		return changed;
+	}
+
+	/**
+	 * Finds the vertices none of whose shortest paths survives the deletion,
+	 * in the order of their distance, and recomputes their distances.
+	 */
+	private long removeEdges(final Graph before, final Graph after, final EdgeDelta delta, final int pivot,
+			final double[] distance, final Heap heap, final boolean[] affected, final boolean[] queued,
+			final IntArray visited) {
+		// a deleted edge, or the old weight of a replaced one, on a shortest path
+		for (int k = 0; k < delta.getNumOfDeleted() + delta.getNumOfInserted(); k++) {
+			final boolean deleted = k < delta.getNumOfDeleted();
+			final int source = deleted ? delta.getDeletedSource(k) : delta.getInsertedSource(k
+					- delta.getNumOfDeleted());
+			final int target = deleted ? delta.getDeletedTarget(k) : delta.getInsertedTarget(k
+					- delta.getNumOfDeleted());
+			final double weight = EdgeDelta.weight(before, source, target);
+			if (weight == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			queueIfTight(distance, source, target, weight, pivot, heap, queued, visited);
+			queueIfTight(distance, target, source, weight, pivot, heap, queued, visited);
+		}
+		final IntArray affectedVertices = new IntArray(16);
+		while (!heap.isEmpty()) {
+			final int index = heap.pop();
+			if (hasTightParent(after, distance, affected, index)) {
+				continue;
+			}
+			affected[index] = true;
+			affectedVertices.add(index);
+			// the vertices that may have used it as predecessor
+			final int[] neighbors = after.getNeighbors(index);
+			final double[] weights = after.getWeights(index);
+			for (int j = 0; j < neighbors.length; j++) {
+				queueIfTight(distance, index, neighbors[j], weights[j], pivot, heap, queued, visited);
+			}
+		}
+		reset(heap, queued, visited);
+		// the affected vertices start from their unaffected neighbors
+		final int[] data = affectedVertices.getData();
+		final double[] old = new double[affectedVertices.size()];
+		for (int k = 0; k < affectedVertices.size(); k++) {
+			final int index = data[k];
+			old[k] = distance[index];
+			double start = Double.POSITIVE_INFINITY;
+			final int[] neighbors = after.getNeighbors(index);
+			final double[] weights = after.getWeights(index);
+			for (int j = 0; j < neighbors.length; j++) {
+				if (!affected[neighbors[j]]) {
+					start = Math.min(start, distance[neighbors[j]] + weights[j]);
+				}
+			}
+			distance[index] = Double.POSITIVE_INFINITY;
+			queueIfShorter(distance, index, start, heap, queued, visited);
+		}
+		// a replaced edge of lower weight may shorten the paths beyond the
+		// affected vertices as well
+		long changed = 0;
+		while (!heap.isEmpty()) {
+			final int index = heap.pop();
+			distance[index] = heap.value(index);
+			if (affected[index]) {
+				affected[index] = false;
+			} else {
+				++changed;
+			}
+			final int[] neighbors = after.getNeighbors(index);
+			final double[] weights = after.getWeights(index);
+			for (int j = 0; j < neighbors.length; j++) {
+				queueIfShorter(distance, neighbors[j], distance[index] + weights[j], heap, queued, visited);
+			}
+		}
+		reset(heap, queued, visited);
+		// the affected vertices left are no longer reachable
+		for (int k = 0; k < affectedVertices.size(); k++) {
+			affected[data[k]] = false;
+			if (distance[data[k]] != old[k]) {
+				++changed;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Propagates the decreases due to the inserted edges.
+	 */
+	private long insertEdges(final Graph after, final EdgeDelta delta, final double[] distance, final Heap heap,
+			final boolean[] queued, final IntArray visited) {
+		for (int k = 0; k < delta.getNumOfInserted(); k++) {
+			final int source = delta.getInsertedSource(k);
+			final int target = delta.getInsertedTarget(k);
+			final double weight = delta.getInsertedWeight(k);
+			queueIfShorter(distance, target, distance[source] + weight, heap, queued, visited);
+			queueIfShorter(distance, source, distance[target] + weight, heap, queued, visited);
+		}
+		long changed = 0;
+		while (!heap.isEmpty()) {
+			final int index = heap.pop();
+			distance[index] = heap.value(index);
+			++changed;
+			final int[] neighbors = after.getNeighbors(index);
+			final double[] weights = after.getWeights(index);
+			for (int j = 0; j < neighbors.length; j++) {
+				queueIfShorter(distance, neighbors[j], distance[index] + weights[j], heap, queued, visited);
+			}
+		}
+		reset(heap, queued, visited);
+		return changed;
+	}
+
+	private static void queueIfTight(final double[] distance, final int parent, final int child,
+			final double weight, final int pivot, final Heap heap, final boolean[] queued, final IntArray visited) {
+		if (child != pivot && !queued[child] && distance[parent] + weight == distance[child]) {
+			heap.upsert(child, distance[child]);
+			queued[child] = true;
+			visited.add(child);
+		}
+	}
+
+	private static void queueIfShorter(final double[] distance, final int index, final double value,
+			final Heap heap, final boolean[] queued, final IntArray visited) {
+		if (value < distance[index]) {
+			heap.upsert(index, value);
+			if (!queued[index]) {
+				queued[index] = true;
+				visited.add(index);
+			}
+		}
+	}
+
+	/**
+	 * @return whether an unaffected neighbor still lies on a shortest path to
+	 *         the vertex
+	 */
+	private static boolean hasTightParent(final Graph g, final double[] distance, final boolean[] affected,
+			final int index) {
+		final int[] neighbors = g.getNeighbors(index);
+		final double[] weights = g.getWeights(index);
+		for (int j = 0; j < neighbors.length; j++) {
+			if (!affected[neighbors[j]] && distance[neighbors[j]] + weights[j] == distance[index]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void reset(final Heap heap, final boolean[] queued, final IntArray visited) {
+		final int[] data = visited.getData();
+		for (int k = 0; k < visited.size(); k++) {
+			heap.reset(data[k]);
+			queued[data[k]] = false;
+		}
+		visited.clear();
+	}
+
+	/**
+	 * Writes the pivots and their distances in binary.
+	 */
+	public void write(final File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+				BUFFER_SIZE))) {
+			out.writeInt(MAGIC);
+			final int n = m_pivots.length == 0 ? 0 : m_distances[0].length;
+			out.writeInt(n);
+			out.writeInt(m_pivots.length);
+			for (final int pivot : m_pivots) {
+				out.writeInt(pivot);
+			}
+			for (final double[] distance : m_distances) {
+				for (int v = 0; v < n; v++) {
+					out.writeDouble(distance[v]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param file
+	 *            the state written by {@link #write(File)}
+	 * @param n
+	 *            the number of vertices of the graph
+	 * @return the pivots and their distances
+	 * @throws IllegalArgumentException
+	 *             if the file cannot be read or is of another graph
+	 */
+	public static PivotDistances read(final File file, final int n) throws IllegalArgumentException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+				BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException("state file does not obey the required format");
+			}
+			if (in.readInt() != n) {
+				throw new IllegalArgumentException("state file is of a graph of another size");
+			}
+			final int[] pivots = new int[in.readInt()];
+			for (int i = 0; i < pivots.length; i++) {
+				pivots[i] = in.readInt();
+			}
+			final double[][] distances = new double[pivots.length][n];
+			for (final double[] distance : distances) {
+				for (int v = 0; v < n; v++) {
+					distance[v] = in.readDouble();
+				}
+			}
+			return new PivotDistances(pivots, distances);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("state file cannot be read");
+		}
+	}
+}
@@ -98,33 +98,88 @@ public class StressCalculator {
 		return res + (layout[i] - layout[j]) * (layout[i] - layout[j]);
 	}
 
+	/**
+	 * Stress of all pairs of a sample of sources and any vertex, after
+	 * optimal rescaling. The layout is left unchanged.
+	 * 
+	 * @param sources
+	 *            the sources
+	 * @param distances
+	 *            the distances of each source to all vertices
+	 * @param layout
+	 *            the interleaved coordinates
+	 * @return the stress of the sampled pairs
+	 */
+	public static double calcSampledStress(final int[] sources, final double[][] distances, final double[] layout) {
+		double nom = 0;
+		double denom = 0;
+		for (int i = 0; i < sources.length; i++) {
+			final double[] distance = distances[i];
+			for (int j = 0; j < distance.length; j++) {
+				if (distance[j] > 0) {
+					nom += sqrtDist(layout, sources[i], j) / distance[j];
+					denom += dist(layout, sources[i], j) / (distance[j] * distance[j]);
+				}
+			}
+		}
+		final double factor = denom > 0 ? nom / denom : 1;
+		double stress = 0;
+		for (int i = 0; i < sources.length; i++) {
+			final double[] distance = distances[i];
+			for (int j = 0; j < distance.length; j++) {
+				if (distance[j] > 0) {
+					final double addend = factor * sqrtDist(layout, sources[i], j) / distance[j] - 1;
+					stress += addend * addend;
+				}
+			}
+		}
+		return stress;
+	}
+
+	/**
+	 * @param g
+	 *            the graph
+	 * @param sources
+	 *            the sources
+	 * @return the distances of each source to all vertices, 0 if unreachable
+	 */
+	public static double[][] sssp(final Graph g, final int[] sources) {
+		final double[][] distances = new double[sources.length][g.n()];
+		for (int i = 0; i < sources.length; i++) {
+			sssp(g, sources[i], distances[i]);
+		}
+		return distances;
+	}
+
 	public static double[][] spap(final Graph g) {
 		final double[][] spap = new double[g.n()][g.n()];
 		for (int i = 0; i < g.n(); i++) {
-			double[] distance = spap[i];
-			final Heap heap = new Heap(g.n());
-			final boolean marked[] = new boolean[g.n()];
-			heap.upsert(i, 0);
-			while (!heap.isEmpty()) {
-				// pop minimum distance node
-				final int curInd = heap.pop();
-				// get and store the distance
-				double dist = heap.value(curInd);
-				distance[curInd] = dist;
-				// mark as processed
-				marked[curInd] = true;
-				// get the neighbors
-				final int[] neighborIndex = g.getNeighbors(curInd);
-				final double[] neighWeights = g.getWeights(curInd);
-				for (int j = 0; j < neighborIndex.length; j++) {
-					if (!marked[neighborIndex[j]]) {
-						heap.upsert(neighborIndex[j], dist + neighWeights[j]);
-					}
+			sssp(g, i, spap[i]);
+		}
+		return spap;
+	}
+
+	private static void sssp(final Graph g, final int source, final double[] distance) {
+		final Heap heap = new Heap(g.n());
+		final boolean marked[] = new boolean[g.n()];
+		heap.upsert(source, 0);
+		while (!heap.isEmpty()) {
+			// pop minimum distance node
+			final int curInd = heap.pop();
+			// get and store the distance
+			double dist = heap.value(curInd);
+			distance[curInd] = dist;
+			// mark as processed
+			marked[curInd] = true;
+			// get the neighbors
+			final int[] neighborIndex = g.getNeighbors(curInd);
+			final double[] neighWeights = g.getWeights(curInd);
+			for (int j = 0; j < neighborIndex.length; j++) {
+				if (!marked[neighborIndex[j]]) {
+					heap.upsert(neighborIndex[j], dist + neighWeights[j]);
 				}
 			}
-
 		}
-		return spap;
 	}
 
 }
@@ -24,9 +24,12 @@ import java.util.Arrays;
 
 import sampling.KMeansSampler;
 import sampling.MaxMinSSSPSampler;
+import sampling.PartitionedSampler;
 import sampling.RandomSampler;
-import data_structures.DoubleArray;
-import data_structures.IntArray;
+import sampling.Sampler;
+import data_structures.HeapStressData;
+import data_structures.MappedStressData;
+import data_structures.OffHeapStressData;
 import data_structures.StressData;
 
 public final class StressFactory {
@@ -35,49 +38,94 @@ public final class StressFactory {
 		RANDOM, MAXMIN, KMEANS;
 	}
 
+	public enum STORAGE_STYLE {
+		HEAP, OFFHEAP, MAPPED;
+	}
+
+	public enum SOLVER {
+		MAJORIZATION, SGD;
+	}
+
+	public enum REORDER_STYLE {
+		NONE, BFS, RCM, HILBERT;
+	}
+
+	public enum FAR_FIELD {
+		PIVOTS, BARNES_HUT;
+	}
+
+	public enum EIGEN_SOLVER {
+		POWER, SUBSPACE;
+	}
+
 	public static StressData globalSampling(final Graph g, final Options options) {
-		final StressData sData = new StressData(g.n());
-		// init the sizes
-		for (int i = 0; i < g.n(); i++) {
-			sData.init(i, options.getNumOfPiv() + g.degree(i));
+		final int[] pivots = samplePivots(g, options);
+		// not necessary but for debugging reasons nice
+		Arrays.sort(pivots);
+		final StressData sData = createStressData(g, pivots, options);
+		// calculate MSSP, neighbor terms are taken from the graph
+		MSSP.mssp(g, sData, pivots, g.n(), true, true);
+		sData.seal();
+		// return stress data
+		return sData;
+	}
+
+	/**
+	 * Samples the pivots and searches their distances to all vertices, to be
+	 * kept between runs.
+	 */
+	public static PivotDistances pivotDistances(final Graph g, final Options options) {
+		final int[] pivots = samplePivots(g, options);
+		Arrays.sort(pivots);
+		return PivotDistances.compute(g, pivots);
+	}
+
+	/**
+	 * Samples all pivots at once but keeps them in the order in which they
+	 * were drawn, so that every prefix is a sample of its own.
+	 * 
+	 * @return the stress data builder of the growing pivot set
+	 */
+	public static IncrementalMSSP progressiveSampling(final Graph g, final Options options) {
+		return new IncrementalMSSP(g, samplePivots(g, options), options);
+	}
+
+	private static int[] samplePivots(final Graph g, final Options options) {
+		if (options.isPartitioned()) {
+			return new PartitionedSampler(options).samplePivots(options, g);
 		}
-		// get pivots
-		int[] pivots = null;
+		return createSampler(options).samplePivots(options, g);
+	}
+
+	/**
+	 * @return a sampler of the configured style, seeded by the seed of the
+	 *         options
+	 */
+	public static Sampler createSampler(final Options options) {
 		switch (options.getSampleStyle()) {
 		case KMEANS:
-			pivots = new KMeansSampler(options).samplePivots(options, g);
-			break;
+			return new KMeansSampler(options);
 		case MAXMIN:
-			pivots = new MaxMinSSSPSampler(options).samplePivots(options, g);
-			break;
+			return new MaxMinSSSPSampler(options);
 		case RANDOM:
-			pivots = new RandomSampler(options).samplePivots(options, g);
-			break;
+			return new RandomSampler(options);
 		default:
 			throw new IllegalArgumentException("this enum is not existent");
 		}
-		// not necessary but for debugging reasons nice
-		Arrays.sort(pivots);
-		// calculate MSSP
-		MSSP.mssp(g, sData, pivots, g.n(), true, true);
-		// add neighbor terms
-		addNeighborTerms(g, sData, pivots);
-		// return stress data
-		return sData;
 	}
 
-	private static void addNeighborTerms(final Graph g, final StressData sData, int[] pivots) {
-		for (int i = 0; i < g.n(); i++) {
-			final int[] neigh = g.getNeighbors(i);
-			final double[] weight = g.getWeights(i);
-			final DoubleArray sD = sData.getDistances()[i];
-			final DoubleArray sW = sData.getWeights()[i];
-			final IntArray sP = sData.getPositions()[i];
-			for (int j = 0; j < neigh.length; j++) {
-				sD.add(weight[j]);
-				sW.add(1d / (weight[j] * weight[j]));
-				sP.add(neigh[j]);
-			}
+	static StressData createStressData(final Graph g, final int[] pivots, final Options options) {
+		// hop counts of unweighted graphs allow for quantized distance blocks
+		final boolean quantized = !g.isWeighted();
+		switch (options.getStorageStyle()) {
+		case HEAP:
+			return new HeapStressData(g.n(), pivots, quantized);
+		case OFFHEAP:
+			return new OffHeapStressData(g.n(), pivots, quantized);
+		case MAPPED:
+			return new MappedStressData(g.n(), pivots, quantized, options.getSpillDirectory());
+		default:
+			throw new IllegalArgumentException("this enum is not existent");
 		}
 	}
 
@@ -0,0 +1,344 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package helpers;
+
+import helpers.StressFactory.FAR_FIELD;
+import helpers.StressFactory.REORDER_STYLE;
+import helpers.StressFactory.SAMPLING_STYLE;
+import layout.MultiStartLayout;
+
+/**
+ * Estimates the running time of each phase of the layout pipeline from the
+ * size of the graph and the options, and lowers the pivot counts to fit a
+ * time budget. The cost constants were measured on a single core of a
+ * commodity server and are rough; the iterations are not planned ahead but
+ * stopped at a deadline, only a minimum number of them is reserved.
+ */
+public final class TimePlanner {
+
+	/** nanoseconds for starting up and warming up the JVM */
+	private static final long STARTUP = 300000000L;
+
+	/** nanoseconds per vertex and edge of coarsening the graph */
+	private static final long COARSEN_ELEMENT = 2000;
+
+	/**
+	 * assumed size of all coarse levels together relative to the input, the
+	 * vertices about halve per level but the edges shrink slower
+	 */
+	private static final long COARSE_LEVELS = 2;
+
+	/** nanoseconds per line of counting and reading the input */
+	private static final long READ_LINE = 1200;
+
+	/** nanoseconds per vertex and edge of relabeling the vertices */
+	private static final long REORDER_ELEMENT = 100;
+
+	/** nanoseconds per source and per vertex and edge of a shortest-path search */
+	private static final long SSSP_ELEMENT = 200;
+
+	/**
+	 * nanoseconds per source and per vertex and edge of the all-pairs search
+	 * and the stress sum of -c
+	 */
+	private static final long STRESS_ELEMENT = 50;
+
+	/** nanoseconds per pivot and per vertex and edge of MSSP */
+	private static final long MSSP_ELEMENT = 370;
+
+	/** nanoseconds per vertex, pivot and feature of a k-means iteration */
+	private static final long KMEANS_ELEMENT = 2;
+
+	/** assumed number of k-means iterations */
+	private static final long KMEANS_ITERATIONS = 10;
+
+	/** nanoseconds per term of a sweep */
+	private static final long SWEEP_TERM = 16;
+
+	/** assumed number of quadtree cells a vertex visits in the Barnes-Hut far field */
+	private static final long FAR_FIELD_CELLS = 200;
+
+	/** nanoseconds per vertex of writing the layout */
+	private static final long WRITE_LINE = 1000;
+
+	/** number of iterations the budget has to leave room for */
+	private static final int MIN_ITERATIONS = 10;
+
+	/**
+	 * Smallest number of pivots PivotMDS works with.
+	 */
+	private static final int MIN_PIVOTS_MDS = 2;
+
+	private final long m_n;
+
+	private final long m_m;
+
+	private final Options m_options;
+
+	/**
+	 * @param n
+	 *            the number of vertices
+	 * @param m
+	 *            the number of edges
+	 * @param options
+	 *            the options to plan for, pivot counts are lowered in place
+	 */
+	public TimePlanner(final long n, final long m, final Options options) {
+		m_n = n;
+		m_m = m;
+		m_options = options;
+	}
+
+	/**
+	 * @return nanoseconds of starting up, counting and reading the input, and
+	 *         relabeling the vertices
+	 */
+	public long estimateRead() {
+		long time = STARTUP + READ_LINE * (m_n + m_m);
+		if (m_options.getReorderStyle() != REORDER_STYLE.NONE) {
+			time += REORDER_ELEMENT * (m_n + m_m);
+		}
+		return time;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of PivotMDS pivots
+	 * @return nanoseconds of PivotMDS
+	 */
+	public long estimatePivMDS(final long numOfPivots) {
+		if (m_options.hasStartLayout()) {
+			// the given layout replaces PivotMDS
+			return 0;
+		}
+		if (m_options.isMultilevel() && m_n > 0) {
+			// only the coarsest level, assumed to be as dense as the input
+			final long n = Math.min(m_options.getCoarsestSize(), m_n);
+			return SSSP_ELEMENT * Math.min(numOfPivots, n) * ((m_n + m_m) * n / m_n);
+		}
+		return SSSP_ELEMENT * Math.min(numOfPivots, m_n) * (m_n + m_m);
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @param numOfFeatures
+	 *            the number of k-means features
+	 * @return nanoseconds of coarsening the graph and of sampling, MSSP and
+	 *         the iterations of the coarse levels
+	 */
+	public long estimateCoarseLevels(final long numOfPivots, final long numOfFeatures) {
+		if (!m_options.isMultilevel()) {
+			return 0;
+		}
+		return COARSEN_ELEMENT * (m_n + m_m) + COARSE_LEVELS * (estimateSampling(numOfPivots, numOfFeatures)
+				+ estimateMSSP(numOfPivots) + m_options.getLevelIter() * estimateSweep(numOfPivots));
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @param numOfFeatures
+	 *            the number of k-means features
+	 * @return nanoseconds of sampling the pivots
+	 */
+	public long estimateSampling(final long numOfPivots, final long numOfFeatures) {
+		final long p = Math.min(numOfPivots, m_n);
+		// a region of 1/R of the graph samples p/R pivots, and R regions are
+		// processed by up to THREADS threads
+		final long regions = m_options.isPartitioned() ? Math.min(m_options.getNumOfPartitions(), p) : 1;
+		final long concurrent = Math.min(regions, m_options.getNumOfThreads());
+		final long features = Math.min(numOfFeatures, p / regions + 1);
+		switch (m_options.getSampleStyle()) {
+		case MAXMIN:
+			return SSSP_ELEMENT * p * (m_n + m_m) / regions / concurrent;
+		case KMEANS:
+			return (SSSP_ELEMENT * features * (m_n + m_m)
+					+ KMEANS_ELEMENT * KMEANS_ITERATIONS * m_n * p * features / regions) / concurrent;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @return nanoseconds of MSSP
+	 */
+	public long estimateMSSP(final long numOfPivots) {
+		if (m_options.isProgressive()) {
+			// a shortest-path search per pivot, and copying the terms on
+			// every extension
+			return SSSP_ELEMENT * Math.min(numOfPivots, m_n) * (m_n + m_m) + 2 * estimateSweep(numOfPivots);
+		}
+		return MSSP_ELEMENT * Math.min(numOfPivots, m_n) * (m_n + m_m);
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of sparse stress pivots
+	 * @return nanoseconds of a single iteration
+	 */
+	public long estimateSweep(final long numOfPivots) {
+		if (m_options.getFarField() == FAR_FIELD.BARNES_HUT) {
+			return SWEEP_TERM * ((Math.min(numOfPivots, m_n) + FAR_FIELD_CELLS) * m_n + 2 * m_m);
+		}
+		return SWEEP_TERM * (Math.min(numOfPivots, m_n) * m_n + 2 * m_m);
+	}
+
+	/**
+	 * @return nanoseconds of writing the layout and calculating its stress
+	 */
+	public long estimateFinish() {
+		long time = WRITE_LINE * m_n;
+		if (m_options.calcStress()) {
+			time += STRESS_ELEMENT * m_n * (m_n + m_m);
+		}
+		return time;
+	}
+
+	/**
+	 * @return nanoseconds of the shortest-path searches from the sampled
+	 *         sources that compare the layouts of a multi-start
+	 */
+	public long estimateStarts() {
+		if (m_options.getNumOfStarts() <= 1) {
+			return 0;
+		}
+		return SSSP_ELEMENT * Math.min(MultiStartLayout.SAMPLE_SOURCES, m_n) * (m_n + m_m);
+	}
+
+	private long estimateLayout(final int numOfPivotsMDS, final int numOfPivots, final int numOfFeatures) {
+		// the starts run in waves of THREADS
+		final long threads = Math.min(m_options.getNumOfStarts(), m_options.getNumOfThreads());
+		final long waves = (m_options.getNumOfStarts() + threads - 1) / threads;
+		return estimatePivMDS(numOfPivotsMDS) + estimateCoarseLevels(numOfPivots, numOfFeatures) + estimateStarts()
+				+ waves * (estimateSampling(numOfPivots, numOfFeatures) + estimateMSSP(numOfPivots)
+						+ MIN_ITERATIONS * estimateSweep(numOfPivots));
+	}
+
+	/**
+	 * @return the estimated time in nanoseconds of the current options with
+	 *         the minimum number of iterations
+	 */
+	public long estimateTotal() {
+		return estimateRead() + estimateLayout(m_options.getNumOfPivotsMDS(), m_options.getNumOfPiv(),
+				getNumOfFeatures()) + estimateFinish();
+	}
+
+	/**
+	 * Lowers the number of pivots of PivotMDS and of the sparse stress model,
+	 * and the number of k-means features in proportion as far as necessary to
+	 * fit the budget with the minimum number of iterations.
+	 * 
+	 * @param budget
+	 *            the time budget in nanoseconds
+	 * @return whether the options have been changed
+	 * @throws IllegalArgumentException
+	 *             if the layout does not fit the budget at all
+	 */
+	public boolean fit(final long budget) throws IllegalArgumentException {
+		final long fixed = estimateRead() + estimateFinish();
+		final int features = getNumOfFeatures();
+		final int pivots = m_options.getNumOfPiv();
+		if (fixed + estimateLayout(pivotsMDS(1), 1, Math.min(features, 1)) > budget) {
+			throw new IllegalArgumentException("time budget exceeded: the layout requires about "
+					+ toMillis(fixed + estimateLayout(pivotsMDS(1), 1, Math.min(features, 1)))
+					+ " ms with 1 pivot");
+		}
+		int low = 1;
+		int high = pivots;
+		while (low < high) {
+			final int mid = (int) (((long) low + high + 1) / 2);
+			if (fixed + estimateLayout(pivotsMDS(mid), mid, Math.min(features, mid)) <= budget) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (low == pivots) {
+			return false;
+		}
+		m_options.setNumPivotsMDS(pivotsMDS(low));
+		m_options.setNumOfPiv(low);
+		if (m_options.getSampleStyle() == SAMPLING_STYLE.KMEANS && features > low) {
+			m_options.setNumberOfKMeansSources(low);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of PivotMDS pivots lowered in proportion to the given
+	 *         number of sparse stress pivots
+	 */
+	private int pivotsMDS(final int numOfPivots) {
+		final long scaled = (long) m_options.getNumOfPivotsMDS() * numOfPivots / m_options.getNumOfPiv();
+		return (int) Math.min(m_options.getNumOfPivotsMDS(), Math.max(MIN_PIVOTS_MDS, scaled));
+	}
+
+	private int getNumOfFeatures() {
+		return Math.max(0, m_options.getNumOfKMeansSources());
+	}
+
+	public static long toMillis(final long nanos) {
+		return (nanos + 999999) / 1000000;
+	}
+
+	/**
+	 * Parses a duration given in seconds or with one of the suffixes ms, s, m
+	 * or h.
+	 * 
+	 * @param duration
+	 *            the duration
+	 * @return the duration in nanoseconds
+	 */
+	public static long parseTime(final String duration) {
+		final String s = duration.trim().toLowerCase();
+		if (s.isEmpty()) {
+			throw new IllegalArgumentException("duration is empty");
+		}
+		double unit = 1e9;
+		String number = s;
+		if (s.endsWith("ms")) {
+			unit = 1e6;
+			number = s.substring(0, s.length() - 2);
+		} else if (s.endsWith("s")) {
+			number = s.substring(0, s.length() - 1);
+		} else if (s.endsWith("m")) {
+			unit = 60e9;
+			number = s.substring(0, s.length() - 1);
+		} else if (s.endsWith("h")) {
+			unit = 3600e9;
+			number = s.substring(0, s.length() - 1);
+		}
+		return (long) (Double.parseDouble(number) * unit);
+	}
+
+	@Override
+	public String toString() {
+		return "estimated time: " + toMillis(estimateTotal()) + " ms with " + MIN_ITERATIONS + " iterations (read "
+				+ toMillis(estimateRead()) + ", PivotMDS " + toMillis(estimatePivMDS(m_options.getNumOfPivotsMDS()))
+				+ (m_options.isMultilevel() ? ", coarse levels "
+						+ toMillis(estimateCoarseLevels(m_options.getNumOfPiv(), getNumOfFeatures())) : "")
+				+ (m_options.getNumOfStarts() > 1 ? ", sampled sources " + toMillis(estimateStarts()) : "")
+				+ ", sampling " + toMillis(estimateSampling(m_options.getNumOfPiv(), getNumOfFeatures()))
+				+ ", MSSP " + toMillis(estimateMSSP(m_options.getNumOfPiv())) + ", iteration "
+				+ toMillis(estimateSweep(m_options.getNumOfPiv())) + ", finish " + toMillis(estimateFinish()) + ")";
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io;
+
+import graph.EdgeDelta;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+public final class DeltaReader {
+
+	private static final String DELIMITER = ",";
+	private static final double DEFAULT_LENGTH = 1;
+
+	/**
+	 * Reads an edge delta, one edge per line: +u,v for an insertion, with the
+	 * positive weight as third entry for weighted graphs, and -u,v for a
+	 * deletion.
+	 * 
+	 * @param file
+	 *            the delta
+	 * @param n
+	 *            the number of vertices of the graph
+	 * @param weighted
+	 *            whether inserted edges have a weight
+	 * @return the delta
+	 * @throws IllegalArgumentException
+	 *             if the file cannot be read or does not obey the format
+	 */
+	public static EdgeDelta readDelta(final File file, final int n, final boolean weighted)
+			throws IllegalArgumentException {
+		final EdgeDelta delta = new EdgeDelta();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			int lineNo = 0;
+			while ((line = reader.readLine()) != null) {
+				++lineNo;
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				final char operation = line.charAt(0);
+				final String[] lineSplit = line.substring(1).split(DELIMITER);
+				if ((operation != '+' && operation != '-') || lineSplit.length < 2) {
+					throw new IllegalArgumentException("line " + lineNo
+							+ " of the delta does not obey the required format");
+				}
+				try {
+					final int source = Integer.parseInt(lineSplit[0].trim());
+					final int target = Integer.parseInt(lineSplit[1].trim());
+					if (source < 0 || source >= n || target < 0 || target >= n) {
+						throw new IllegalArgumentException("line " + lineNo
+								+ " of the delta names a vertex not in the graph");
+					}
+					if (operation == '-') {
+						delta.delete(source, target);
+					} else if (!weighted) {
+						delta.insert(source, target, DEFAULT_LENGTH);
+					} else if (lineSplit.length < 3) {
+						throw new IllegalArgumentException("line " + lineNo + " of the delta has no weight");
+					} else {
+						final double weight = Double.parseDouble(lineSplit[2].trim());
+						if (!(weight > 0) || Double.isInfinite(weight)) {
+							throw new IllegalArgumentException("line " + lineNo
+									+ " of the delta: weights have to be positive");
+						}
+						delta.insert(source, target, weight);
+					}
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("vertices and weights of the delta have to be numbers");
+				}
+			}
+			return delta;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("delta file not found");
+		}
+	}
+}
@@ -79,6 +79,37 @@ public final class GraphReader {
 		}
 	}
 
+	/**
+	 * Reads the number of vertices and counts the edges of the input without
+	 * building the graph.
+	 * 
+	 * @param options
+	 *            the options specifying the input
+	 * @return the number of vertices and the number of edges
+	 * @throws IllegalArgumentException
+	 *             if the file cannot be read
+	 */
+	public static long[] readSize(final Options options) throws IllegalArgumentException {
+		try (BufferedReader reader = new BufferedReader(new FileReader(options.getFile()))) {
+			final long n;
+			try {
+				n = Integer.parseInt(reader.readLine());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("first line does not contain the number of nodes");
+			}
+			long m = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					++m;
+				}
+			}
+			return new long[] { n, m };
+		} catch (IOException e) {
+			throw new IllegalArgumentException("file not found");
+		}
+	}
+
 	private static void add(ArrayList<Pair>[] eList, int index1, int index2, double weight) {
 		eList[index1].add(new Pair(index2, weight));
 		eList[index2].add(new Pair(index1, weight));
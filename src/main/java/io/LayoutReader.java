@@ -0,0 +1,183 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public final class LayoutReader {
+
+	private static final String DELIMITER = ",";
+
+	/** marks the files of the binary layout */
+	static final int MAGIC = 0x53534C59;
+
+	/** the magic and the number of vertices */
+	static final int HEADER_SIZE = 8;
+
+	/** bytes moved at once, a multiple of a coordinate pair */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Reads a layout in the output format, i.e., the coordinates x,y of vertex
+	 * i in line i + 1, or in the binary format of {@link LayoutWriter}, which
+	 * is recognized by its magic number.
+	 * 
+	 * @param file
+	 *            the layout
+	 * @param n
+	 *            the number of vertices of the graph
+	 * @return the interleaved coordinates, NaN for the vertices beyond the
+	 *         last line
+	 * @throws IllegalArgumentException
+	 *             if the file cannot be read or has more than n lines
+	 */
+	public static double[] readLayout(final File file, final int n) throws IllegalArgumentException {
+		if (isBinary(file)) {
+			return readBinaryLayout(file, n);
+		}
+		final double[] layout = new double[2 * n];
+		Arrays.fill(layout, Double.NaN);
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			int lineNo = 0;
+			while ((line = reader.readLine()) != null) {
+				if (lineNo == n) {
+					throw new IllegalArgumentException("the layout has more vertices than the graph");
+				}
+				final String[] lineSplit = line.split(DELIMITER);
+				if (lineSplit.length < 2) {
+					throw new IllegalArgumentException("line " + (lineNo + 1)
+							+ " of the layout does not obey the required format");
+				}
+				try {
+					layout[lineNo << 1] = Double.parseDouble(lineSplit[0]);
+					layout[(lineNo << 1) + 1] = Double.parseDouble(lineSplit[1]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("coordinates have to be numbers");
+				}
+				++lineNo;
+			}
+			return layout;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("layout file not found");
+		}
+	}
+
+	private static boolean isBinary(final File file) throws IllegalArgumentException {
+		if (file.length() < HEADER_SIZE) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("layout file not found");
+		}
+	}
+
+	private static double[] readBinaryLayout(final File file, final int n) throws IllegalArgumentException {
+		try (FileInputStream in = new FileInputStream(file)) {
+			final FileChannel channel = in.getChannel();
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header);
+			final int size = header.getInt(4);
+			if (size > n) {
+				throw new IllegalArgumentException("the layout has more vertices than the graph");
+			}
+			if (size < 0 || channel.size() != HEADER_SIZE + 16L * size) {
+				throw new IllegalArgumentException("the binary layout is truncated");
+			}
+			final double[] layout = new double[2 * n];
+			Arrays.fill(layout, 2 * size, layout.length, Double.NaN);
+			final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			for (int offset = 0; offset < 2 * size; offset += BUFFER_SIZE / 8) {
+				final int count = Math.min(BUFFER_SIZE / 8, 2 * size - offset);
+				buffer.clear();
+				buffer.limit(8 * count);
+				readFully(channel, buffer);
+				buffer.asDoubleBuffer().get(layout, offset, count);
+			}
+			return layout;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("layout file cannot be read");
+		}
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("unexpected end of file");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Reads a set of vertices, one per line.
+	 * 
+	 * @param file
+	 *            the vertices
+	 * @param n
+	 *            the number of vertices of the graph
+	 * @return the distinct vertices in the order of the file
+	 * @throws IllegalArgumentException
+	 *             if the file cannot be read or names a vertex not in the
+	 *             graph
+	 */
+	public static int[] readVertices(final File file, final int n) throws IllegalArgumentException {
+		final boolean[] seen = new boolean[n];
+		int[] vertices = new int[16];
+		int size = 0;
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				final int vertex;
+				try {
+					vertex = Integer.parseInt(line);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("vertices have to be numbers");
+				}
+				if (vertex < 0 || vertex >= n) {
+					throw new IllegalArgumentException("vertex " + vertex + " is not in the graph");
+				}
+				if (!seen[vertex]) {
+					seen[vertex] = true;
+					if (size == vertices.length) {
+						vertices = Arrays.copyOf(vertices, 2 * size);
+					}
+					vertices[size++] = vertex;
+				}
+			}
+			return Arrays.copyOf(vertices, size);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("vertex file not found");
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public final class LayoutWriter {
+
+	/**
+	 * Writes a layout in binary, i.e., a magic number, the number of vertices
+	 * and the coordinates x,y of each vertex as big-endian doubles, to be
+	 * read by {@link LayoutReader#readLayout(File, int)} without parsing.
+	 * 
+	 * @param file
+	 *            the target
+	 * @param layout
+	 *            the interleaved coordinates
+	 * @param factor
+	 *            the factor the coordinates are scaled by, as in the text
+	 *            output
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void writeBinaryLayout(final File file, final double[] layout, final double factor)
+			throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			final FileChannel channel = out.getChannel();
+			final ByteBuffer header = ByteBuffer.allocate(LayoutReader.HEADER_SIZE);
+			header.putInt(LayoutReader.MAGIC).putInt(layout.length / 2);
+			header.flip();
+			writeFully(channel, header);
+			final ByteBuffer buffer = ByteBuffer.allocate(LayoutReader.BUFFER_SIZE);
+			for (int offset = 0; offset < layout.length; offset += LayoutReader.BUFFER_SIZE / 8) {
+				final int count = Math.min(LayoutReader.BUFFER_SIZE / 8, layout.length - offset);
+				buffer.clear();
+				for (int i = offset; i < offset + count; i++) {
+					buffer.putDouble(factor * layout[i]);
+				}
+				buffer.flip();
+				writeFully(channel, buffer);
+			}
+		}
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
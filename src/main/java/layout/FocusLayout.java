@@ -0,0 +1,233 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package layout;
+
+import graph.Graph;
+import helpers.Options;
+import helpers.StressFactory.SAMPLING_STYLE;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Lays out a focus set of an existing layout anew. The focus vertices and
+ * those within a number of hops, the halo, are the active region; the
+ * vertices adjacent to it form a frozen boundary. The sparse stress model
+ * then runs on the subgraph induced by region and boundary only, so that its
+ * cost depends on the size of the region. Distances are those within that
+ * subgraph, which the halo makes to agree with the graph near the focus.
+ */
+public final class FocusLayout {
+
+	private int m_numOfActive;
+
+	private int m_numOfFrozen;
+
+	private long m_deadline = Long.MAX_VALUE;
+
+	private double m_sparseStress = Double.NaN;
+
+	/**
+	 * @see SparseStressModel#setDeadline(long)
+	 */
+	public void setDeadline(final long deadline) {
+		m_deadline = deadline;
+	}
+
+	/**
+	 * @return the number of vertices laid out
+	 */
+	public int getNumOfActive() {
+		return m_numOfActive;
+	}
+
+	/**
+	 * @return the number of boundary vertices that were kept fixed
+	 */
+	public int getNumOfFrozen() {
+		return m_numOfFrozen;
+	}
+
+	/**
+	 * @return the sparse stress of the region if a deadline is set, NaN
+	 *         otherwise
+	 */
+	public double getSparseStress() {
+		return m_sparseStress;
+	}
+
+	/**
+	 * @param g
+	 *            the graph
+	 * @param layout
+	 *            the interleaved coordinates, NaN for vertices without a
+	 *            position, which have to be in the active region; the
+	 *            coordinates of the region are replaced
+	 * @param focus
+	 *            the focus vertices
+	 * @param options
+	 *            the options, the pivots are sampled within the subgraph
+	 * @return the layout
+	 */
+	public double[] doLayout(final Graph g, final double[] layout, final int[] focus, final Options options) {
+		// the active region in breadth-first order from the focus
+		final int halo = options.getHalo();
+		final int[] hops = new int[g.n()];
+		Arrays.fill(hops, -1);
+		final int[] vertices = new int[g.n()];
+		int size = 0;
+		for (final int v : focus) {
+			hops[v] = 0;
+			vertices[size++] = v;
+		}
+		for (int head = 0; head < size; head++) {
+			final int v = vertices[head];
+			if (hops[v] < halo) {
+				for (final int u : g.getNeighbors(v)) {
+					if (hops[u] < 0) {
+						hops[u] = hops[v] + 1;
+						vertices[size++] = u;
+					}
+				}
+			}
+		}
+		// the boundary are the remaining neighbors of the outermost vertices
+		final int numOfActive = size;
+		for (int i = 0; i < numOfActive; i++) {
+			final int v = vertices[i];
+			if (hops[v] == halo) {
+				for (final int u : g.getNeighbors(v)) {
+					if (hops[u] < 0) {
+						hops[u] = halo + 1;
+						vertices[size++] = u;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < g.n(); i++) {
+			if (Double.isNaN(layout[i << 1]) && (hops[i] < 0 || hops[i] > halo)) {
+				throw new IllegalArgumentException("vertex " + i + " has no position and is not in the focus");
+			}
+		}
+		m_numOfActive = numOfActive;
+		m_numOfFrozen = size - numOfActive;
+		final int[] region = Arrays.copyOf(vertices, size);
+		final Graph subgraph = g.subgraph(region);
+		final double[] subLayout = new double[2 * size];
+		final boolean[] fixed = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			subLayout[i << 1] = layout[region[i] << 1];
+			subLayout[(i << 1) + 1] = layout[(region[i] << 1) + 1];
+			fixed[i] = i >= numOfActive;
+		}
+		placeMissing(subgraph, subLayout, new Random(options.getSeed()));
+		// the pivots are lowered to the size of the region
+		final Options regionOptions = new Options(options);
+		regionOptions.setNumOfPiv(Math.min(options.getNumOfPiv(), size));
+		if (options.getSampleStyle() == SAMPLING_STYLE.KMEANS
+				&& options.getNumOfKMeansSources() > regionOptions.getNumOfPiv()) {
+			regionOptions.setNumberOfKMeansSources(regionOptions.getNumOfPiv());
+		}
+		final SparseStressModel model = new SparseStressModel();
+		model.setDeadline(m_deadline);
+		model.setFixed(fixed);
+		model.doLayout(subgraph, subLayout, regionOptions);
+		m_sparseStress = model.getSparseStress();
+		for (int i = 0; i < numOfActive; i++) {
+			layout[region[i] << 1] = subLayout[i << 1];
+			layout[(region[i] << 1) + 1] = subLayout[(i << 1) + 1];
+		}
+		return layout;
+	}
+
+	/**
+	 * Places the vertices without a position, i.e., of NaN coordinates, at
+	 * the barycenter of their placed neighbors, in breadth-first order from
+	 * the placed ones, with a small random offset to separate vertices of
+	 * equal neighbors. A component without any placed vertex is put around
+	 * the origin.
+	 */
+	public static void placeMissing(final Graph g, final double[] layout, final Random rand) {
+		final int n = g.n();
+		final boolean[] placed = new boolean[n];
+		final int[] queue = new int[n];
+		int tail = 0;
+		for (int i = 0; i < n; i++) {
+			placed[i] = !Double.isNaN(layout[i << 1]);
+			if (placed[i]) {
+				queue[tail++] = i;
+			}
+		}
+		if (tail == n) {
+			return;
+		}
+		final double offset = avgEdgeLength(g, layout, placed) / 10;
+		int head = 0;
+		int next = 0;
+		while (tail < n) {
+			if (head == tail) {
+				// a component without placed vertices
+				while (placed[next]) {
+					++next;
+				}
+				layout[next << 1] = offset * (rand.nextDouble() - 0.5);
+				layout[(next << 1) + 1] = offset * (rand.nextDouble() - 0.5);
+				placed[next] = true;
+				queue[tail++] = next;
+			}
+			for (final int u : g.getNeighbors(queue[head++])) {
+				if (placed[u]) {
+					continue;
+				}
+				double sumX = 0;
+				double sumY = 0;
+				int count = 0;
+				for (final int w : g.getNeighbors(u)) {
+					if (placed[w]) {
+						sumX += layout[w << 1];
+						sumY += layout[(w << 1) + 1];
+						++count;
+					}
+				}
+				layout[u << 1] = sumX / count + offset * (rand.nextDouble() - 0.5);
+				layout[(u << 1) + 1] = sumY / count + offset * (rand.nextDouble() - 0.5);
+				placed[u] = true;
+				queue[tail++] = u;
+			}
+		}
+	}
+
+	private static double avgEdgeLength(final Graph g, final double[] layout, final boolean[] placed) {
+		double sum = 0;
+		int count = 0;
+		for (int i = 0; i < g.n(); i++) {
+			if (!placed[i]) {
+				continue;
+			}
+			for (final int j : g.getNeighbors(i)) {
+				if (j > i && placed[j]) {
+					sum += StressKernel.distance(layout[i << 1], layout[(i << 1) + 1], layout[j << 1],
+							layout[(j << 1) + 1]);
+					++count;
+				}
+			}
+		}
+		return count > 0 ? sum / count : 1;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package layout;
+
+import graph.Graph;
+import helpers.Options;
+import helpers.StressCalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the sparse stress model from the same start layout with several seeds,
+ * i.e., with different pivots, concurrently and keeps the layout of least
+ * stress. The sparse stress of different pivots is not comparable, so the
+ * layouts are compared by their stress restricted to the pairs of a common
+ * sample of sources and all vertices.
+ */
+public final class MultiStartLayout {
+
+	/** number of sources of the sampled stress */
+	public static final int SAMPLE_SOURCES = 32;
+
+	/** seed of the sources, independent of the seeds of the starts */
+	private static final long SOURCE_SEED = 0;
+
+	private long m_deadline = Long.MAX_VALUE;
+
+	private boolean m_warmStart;
+
+	private int m_bestStart = -1;
+
+	private double m_sampledStress = Double.NaN;
+
+	private double m_sparseStress = Double.NaN;
+
+	/**
+	 * @param deadline
+	 *            the deadline of the iterations of every start in terms of
+	 *            {@link System#nanoTime()}
+	 * @see SparseStressModel#setDeadline(long)
+	 */
+	public void setDeadline(final long deadline) {
+		m_deadline = deadline;
+	}
+
+	/**
+	 * @see SparseStressModel#setWarmStart(boolean)
+	 */
+	public void setWarmStart(final boolean warmStart) {
+		m_warmStart = warmStart;
+	}
+
+	/**
+	 * @return the start of the kept layout, i.e., its seed minus the given one
+	 */
+	public int getBestStart() {
+		return m_bestStart;
+	}
+
+	/**
+	 * @return the sampled stress of the kept layout
+	 */
+	public double getSampledStress() {
+		return m_sampledStress;
+	}
+
+	/**
+	 * @return the sparse stress of the kept layout if a deadline is set, NaN
+	 *         otherwise
+	 */
+	public double getSparseStress() {
+		return m_sparseStress;
+	}
+
+	/**
+	 * @param g
+	 *            the graph, shared by all starts
+	 * @param layout
+	 *            the interleaved start coordinates, replaced by the kept
+	 *            layout
+	 * @param options
+	 *            the options, start k uses the seed plus k; the starts are
+	 *            run on THREADS threads with a single thread each
+	 * @return the kept layout
+	 */
+	public double[] doLayout(final Graph g, final double[] layout, final Options options) {
+		final int[] sources = sampleSources(g.n());
+		final double[][] distances = StressCalculator.sssp(g, sources);
+		// the given layout is overwritten while later starts may still copy
+		final double[] startLayout = layout.clone();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.getNumOfStarts(),
+				options.getNumOfThreads()));
+		try {
+			final List<Future<Start>> starts = new ArrayList<Future<Start>>();
+			for (int k = 0; k < options.getNumOfStarts(); k++) {
+				final Options startOptions = new Options(options);
+				startOptions.setSeed(options.getSeed() + k);
+				startOptions.setNumOfThreads(1);
+				starts.add(executor.submit(new Callable<Start>() {
+					@Override
+					public Start call() {
+						final double[] result = startLayout.clone();
+						final SparseStressModel model = new SparseStressModel();
+						model.setDeadline(m_deadline);
+						model.setWarmStart(m_warmStart);
+						model.doLayout(g, result, startOptions);
+						return new Start(result, StressCalculator.calcSampledStress(sources, distances, result),
+								model.getSparseStress());
+					}
+				}));
+			}
+			for (int k = 0; k < starts.size(); k++) {
+				final Start start = get(starts.get(k));
+				if (m_bestStart < 0 || start.m_sampledStress < m_sampledStress) {
+					m_bestStart = k;
+					m_sampledStress = start.m_sampledStress;
+					m_sparseStress = start.m_sparseStress;
+					System.arraycopy(start.m_layout, 0, layout, 0, layout.length);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return layout;
+	}
+
+	/**
+	 * @return SAMPLE_SOURCES distinct vertices, or all if there are not more
+	 */
+	private int[] sampleSources(final int n) {
+		final int[] sources = new int[Math.min(SAMPLE_SOURCES, n)];
+		if (sources.length == n) {
+			for (int i = 0; i < n; i++) {
+				sources[i] = i;
+			}
+			return sources;
+		}
+		// without replacement, redrawing the few repetitions rather than
+		// shuffling all vertices
+		final Random rand = new Random(SOURCE_SEED);
+		for (int i = 0; i < sources.length; i++) {
+			int source;
+			do {
+				source = rand.nextInt(n);
+			} while (contains(sources, i, source));
+			sources[i] = source;
+		}
+		return sources;
+	}
+
+	private static boolean contains(final int[] values, final int length, final int value) {
+		for (int i = 0; i < length; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Start get(final Future<Start> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting for the layouts", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static final class Start {
+
+		private final double[] m_layout;
+
+		private final double m_sampledStress;
+
+		private final double m_sparseStress;
+
+		private Start(final double[] layout, final double sampledStress, final double sparseStress) {
+			m_layout = layout;
+			m_sampledStress = sampledStress;
+			m_sparseStress = sparseStress;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package layout;
+
+import graph.Graph;
+import graph.GraphHierarchy;
+import helpers.Options;
+import helpers.StressFactory.SAMPLING_STYLE;
+
+import java.util.Random;
+
+/**
+ * Multilevel start layout. The input is coarsened into a
+ * {@link GraphHierarchy}, the coarsest level is laid out by PivotMDS and the
+ * sparse stress model, and each layout is prolonged to the next finer level
+ * and refined by a few iterations. The layout of the input level is only
+ * prolonged, its refinement is left to the caller.
+ */
+public final class MultilevelLayout {
+
+	/**
+	 * @param g
+	 *            the graph
+	 * @param options
+	 *            the options, the coarsest level is iterated ITER times and
+	 *            the intermediate ones the iterations per level
+	 * @return the interleaved coordinates prolonged to the input
+	 */
+	public double[] doLayout(final Graph g, final Options options) {
+		final GraphHierarchy hierarchy = new GraphHierarchy(g, options.getCoarsestSize());
+		final int coarsest = hierarchy.getNumOfLevels() - 1;
+		double[] layout = new PivMDS().doLayout(hierarchy.getGraph(coarsest), options);
+		final Random rand = new Random(options.getSeed());
+		// the pivot counts are lowered to the size of the levels
+		final int numOfPiv = options.getNumOfPiv();
+		final int numOfIter = options.getNumOfIter();
+		final int numOfFeatures = options.getNumOfKMeansSources();
+		try {
+			for (int level = coarsest; level > 0; level--) {
+				final Graph levelGraph = hierarchy.getGraph(level);
+				options.setNumOfIter(level == coarsest ? numOfIter : options.getLevelIter());
+				options.setNumOfPiv(Math.min(numOfPiv, levelGraph.n()));
+				if (options.getSampleStyle() == SAMPLING_STYLE.KMEANS && numOfFeatures > options.getNumOfPiv()) {
+					options.setNumberOfKMeansSources(options.getNumOfPiv());
+				}
+				new SparseStressModel().doLayout(levelGraph, layout, options);
+				layout = hierarchy.prolong(level - 1, layout, rand);
+			}
+		} finally {
+			options.setNumOfPiv(numOfPiv);
+			options.setNumOfIter(numOfIter);
+			if (options.getSampleStyle() == SAMPLING_STYLE.KMEANS) {
+				options.setNumberOfKMeansSources(numOfFeatures);
+			}
+		}
+		return layout;
+	}
+}
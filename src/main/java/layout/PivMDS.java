@@ -19,9 +19,15 @@
 package layout;
 
 import graph.Graph;
+import helpers.Options;
+import helpers.StressFactory.EIGEN_SOLVER;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import data_structures.Heap;
 
@@ -34,16 +40,98 @@ public final class PivMDS {
 	 */
 	private static final double EPSILON = 1 - 1e-10;
 
+	/** iterations after which the power iteration gives up */
+	private static final int MAX_POWER_ITERATIONS = 10000;
+
+	/** vectors the subspace iteration carries beyond the wanted ones */
+	private static final int OVERSAMPLING = 8;
+
+	/**
+	 * Residual of the Ritz pairs, relative to the largest Ritz value, at
+	 * which the subspace iteration stops.
+	 */
+	private static final double TOLERANCE = 1e-8;
+
+	/** iterations after which the subspace iteration gives up */
+	private static final int MAX_SUBSPACE_ITERATIONS = 100;
+
+	/** sweeps after which the Jacobi method of the projection gives up */
+	private static final int MAX_JACOBI_SWEEPS = 50;
+
+	/**
+	 * Squared norm of the off-diagonal entries, relative to that of the
+	 * diagonal, at which the Jacobi method stops.
+	 */
+	private static final double JACOBI_EPSILON = 1e-30;
+
+	/**
+	 * Share of its length a vector has to keep when orthogonalized, otherwise
+	 * it is taken as linearly dependent.
+	 */
+	private static final double RANK_TOLERANCE = 1e-8;
+
 	private static final double FACTOR = -0.5;
 
 	private static final long SEED = 0;
 
+	/**
+	 * Number of columns, i.e., vertices, the matrix operations process at
+	 * once; a slice of a row fits into the L1 cache.
+	 */
+	private static final int COLUMN_BLOCK = 1024;
+
+	/**
+	 * Number of rows, i.e., pivots, whose column blocks the Gram product
+	 * combines at once; the slices of two row blocks fit into the L2 cache.
+	 */
+	private static final int ROW_BLOCK = 16;
+
+	/** the pool of the matrix operations, null if single-threaded */
+	private ForkJoinPool m_pool;
+
+	private EIGEN_SOLVER m_eigenSolver = EIGEN_SOLVER.SUBSPACE;
+
+	public void setEigenSolver(final EIGEN_SOLVER eigenSolver) {
+		m_eigenSolver = eigenSolver;
+	}
+
 	public double[] doLayout(final Graph g, final int numberOfPivots) {
+		return doLayout(g, numberOfPivots, 1);
+	}
+
+	/**
+	 * Lays out the graph with the PivotMDS pivots, threads and eigensolver of
+	 * the options.
+	 */
+	public double[] doLayout(final Graph g, final Options options) {
+		setEigenSolver(options.getEigenSolver());
+		return doLayout(g, options.getNumOfPivotsMDS(), options.getNumOfThreads());
+	}
 
+	/**
+	 * @param g
+	 *            the graph
+	 * @param numberOfPivots
+	 *            the number of pivots
+	 * @param numOfThreads
+	 *            the number of threads of centering, Gram product and
+	 *            projection; the result does not depend on it
+	 * @return the interleaved coordinates
+	 */
+	public double[] doLayout(final Graph g, final int numberOfPivots, final int numOfThreads) {
 		final double[][] coord = new double[DIMENSIONALITY][g.n()];
 		final double[] evals = new double[DIMENSIONALITY];
-		singularValueDecomposition(getDistanceMatrix(g, numberOfPivots), coord,
-				evals);
+		if (numOfThreads > 1) {
+			m_pool = new ForkJoinPool(numOfThreads);
+		}
+		try {
+			singularValueDecomposition(getDistanceMatrix(g, numberOfPivots), coord, evals);
+		} finally {
+			if (m_pool != null) {
+				m_pool.shutdown();
+				m_pool = null;
+			}
+		}
 		for (int i = 0; i < DIMENSIONALITY; i++) {
 			evals[i] = Math.sqrt(evals[i]);
 			for (int j = 0; j < g.n(); j++) {
@@ -91,7 +179,7 @@ public final class PivMDS {
 		}
 		// return the pivot distance matrix (this is needed for the quick
 		// layout)
-		centerDistanceMatrix(distanceMatrix);
+		centerDistanceMatrix(distanceMatrix, m_pool);
 		return distanceMatrix;
 	}
 
@@ -126,39 +214,68 @@ public final class PivMDS {
 	 *            the matrix to center
 	 */
 	public static void centerDistanceMatrix(final double[][] pivotDistanceMatrix) {
+		centerDistanceMatrix(pivotDistanceMatrix, null);
+	}
+
+	/**
+	 * Centers the pivot matrix, row by row and then in blocks of columns.
+	 * Every entry is summed up in the same order for any number of threads.
+	 * 
+	 * @param pivotDistanceMatrix
+	 *            the matrix to center
+	 * @param pool
+	 *            the pool to process the rows and blocks, or null
+	 */
+	public static void centerDistanceMatrix(final double[][] pivotDistanceMatrix, final ForkJoinPool pool) {
 		final int numberOfPivots = pivotDistanceMatrix.length;
 		final int componentSize = pivotDistanceMatrix[0].length;
 
-		double normalizationFactor = 0;
-		double rowColNormalizer;
+		// the squared sum of each row
 		final double[] colNormalization = new double[numberOfPivots];
-
-		for (int i = 0; i < numberOfPivots; i++) {
-			rowColNormalizer = 0;
-			for (int j = 0; j < componentSize; j++) {
-				rowColNormalizer += pivotDistanceMatrix[i][j]
-						* pivotDistanceMatrix[i][j];
+		forEachBlock(pool, numberOfPivots, new BlockOperation() {
+			@Override
+			public void apply(final int i) {
+				final double[] row = pivotDistanceMatrix[i];
+				double rowColNormalizer = 0;
+				for (int j = 0; j < componentSize; j++) {
+					rowColNormalizer += row[j] * row[j];
+				}
+				colNormalization[i] = rowColNormalizer;
 			}
-			normalizationFactor += rowColNormalizer;
-			colNormalization[i] = rowColNormalizer / componentSize;
+		});
+		double sum = 0;
+		for (int i = 0; i < numberOfPivots; i++) {
+			sum += colNormalization[i];
+			colNormalization[i] /= componentSize;
 		}
-		normalizationFactor = normalizationFactor
-				/ (componentSize * numberOfPivots);
-		for (int i = 0; i < componentSize; i++) {
-			rowColNormalizer = 0;
-			for (int j = 0; j < numberOfPivots; j++) {
-				double square = pivotDistanceMatrix[j][i];
-				square *= square;
-				pivotDistanceMatrix[j][i] = square + normalizationFactor
-						- colNormalization[j];
-				rowColNormalizer += square;
-			}
-			rowColNormalizer /= numberOfPivots;
-			for (int j = 0; j < numberOfPivots; j++) {
-				pivotDistanceMatrix[j][i] = FACTOR
-						* (pivotDistanceMatrix[j][i] - rowColNormalizer);
+		final double normalizationFactor = sum / ((double) componentSize * numberOfPivots);
+		// the squared mean of each column, a block of columns at a time
+		forEachBlock(pool, numOfBlocks(componentSize, COLUMN_BLOCK), new BlockOperation() {
+			@Override
+			public void apply(final int block) {
+				final int from = block * COLUMN_BLOCK;
+				final int to = Math.min(componentSize, from + COLUMN_BLOCK);
+				final double[] rowColNormalizer = new double[to - from];
+				for (int j = 0; j < numberOfPivots; j++) {
+					final double[] row = pivotDistanceMatrix[j];
+					final double normalization = colNormalization[j];
+					for (int i = from; i < to; i++) {
+						final double square = row[i] * row[i];
+						row[i] = square + normalizationFactor - normalization;
+						rowColNormalizer[i - from] += square;
+					}
+				}
+				for (int i = 0; i < rowColNormalizer.length; i++) {
+					rowColNormalizer[i] /= numberOfPivots;
+				}
+				for (int j = 0; j < numberOfPivots; j++) {
+					final double[] row = pivotDistanceMatrix[j];
+					for (int i = from; i < to; i++) {
+						row[i] = FACTOR * (row[i] - rowColNormalizer[i - from]);
+					}
+				}
 			}
-		}
+		});
 	}
 
 	private void singularValueDecomposition(final double[][] input,
@@ -167,11 +284,15 @@ public final class PivMDS {
 		final int d = evecs.length;
 		final double[][] K = new double[k][k];
 		// C^TC berechnen
-		selfprod(input, K);
+		selfprod(input, K, m_pool);
 
 		final double[][] tmp = new double[d][k];
 
-		eigenValueDecomposition(K, tmp, evals);
+		if (m_eigenSolver == EIGEN_SOLVER.POWER) {
+			eigenValueDecomposition(K, tmp, evals);
+		} else {
+			subspaceIteration(K, tmp, evals);
+		}
 
 		// eigenvalues to singular values
 		for (int m = 0; m < evecs.length; m++) {
@@ -179,7 +300,7 @@ public final class PivMDS {
 		}
 
 		// C^Tx
-		product(input, tmp, evecs);
+		product(input, tmp, evecs, m_pool);
 
 		for (int m = 0; m < d; m++) {
 			normalize(evecs[m]);
@@ -195,18 +316,68 @@ public final class PivMDS {
 	 *            storage for d\times d^T
 	 */
 	public static void selfprod(final double[][] d, final double[][] result) {
+		selfprod(d, result, null);
+	}
+
+	/**
+	 * calculate d\times d^T in tiles of ROW_BLOCK x ROW_BLOCK entries, each
+	 * summed up over the column blocks in order, so that the result does not
+	 * depend on the number of threads
+	 * 
+	 * @param d
+	 *            matrix
+	 * @param result
+	 *            storage for d\times d^T
+	 * @param pool
+	 *            the pool to process the tiles, or null
+	 */
+	public static void selfprod(final double[][] d, final double[][] result, final ForkJoinPool pool) {
 		final int k = d.length;
 		final int n = d[0].length;
-		for (int i = 0; i < k; i++) {
-			for (int j = 0; j <= i; j++) {
-				double sum = 0;
-				for (int m = 0; m < n; m++) {
-					sum += d[i][m] * d[j][m];
-				}
-				result[i][j] = sum;
-				result[j][i] = sum;
+		// the tiles on and below the diagonal
+		final List<int[]> tiles = new ArrayList<int[]>();
+		for (int i = 0; i < k; i += ROW_BLOCK) {
+			for (int j = 0; j <= i; j += ROW_BLOCK) {
+				tiles.add(new int[] { i, j });
 			}
 		}
+		forEachBlock(pool, tiles.size(), new BlockOperation() {
+			@Override
+			public void apply(final int tile) {
+				final int rowFrom = tiles.get(tile)[0];
+				final int rowTo = Math.min(k, rowFrom + ROW_BLOCK);
+				final int colFrom = tiles.get(tile)[1];
+				final int colTo = Math.min(k, colFrom + ROW_BLOCK);
+				// a tile on the diagonal is computed as a whole, both halves agree
+				for (int i = rowFrom; i < rowTo; i++) {
+					Arrays.fill(result[i], colFrom, colTo, 0);
+				}
+				for (int from = 0; from < n; from += COLUMN_BLOCK) {
+					final int to = Math.min(n, from + COLUMN_BLOCK);
+					int i = rowFrom;
+					for (; i + 1 < rowTo; i += 2) {
+						int j = colFrom;
+						for (; j + 1 < colTo; j += 2) {
+							dot2x2(d, result, i, j, from, to);
+						}
+						if (j < colTo) {
+							dot(d, result, i, j, from, to);
+							dot(d, result, i + 1, j, from, to);
+						}
+					}
+					if (i < rowTo) {
+						for (int j = colFrom; j < colTo; j++) {
+							dot(d, result, i, j, from, to);
+						}
+					}
+				}
+				for (int i = rowFrom; i < rowTo; i++) {
+					for (int j = colFrom; j < colTo; j++) {
+						result[j][i] = result[i][j];
+					}
+				}
+			}
+		});
 	}
 
 	/**
@@ -228,11 +399,11 @@ public final class PivMDS {
 		for (int m = 0; m < d; m++) {
 			eValues[m] = normalize(eVecs[m]);
 		}
-		while (r < EPSILON) {
+		final double[][] tempOld = new double[d][k];
+		for (int iteration = 0; r < EPSILON && iteration < MAX_POWER_ITERATIONS; iteration++) {
 			if (Double.isNaN(r) || Double.isInfinite(r)) {
 				throw new ArithmeticException();
 			}
-			final double[][] tempOld = new double[d][k];
 			// alte werte merken
 			for (int m = 0; m < d; m++) {
 				for (int i = 0; i < k; i++) {
@@ -269,6 +440,248 @@ public final class PivMDS {
 		}
 	}
 
+	/**
+	 * Computes the eigenvectors of the largest eigenvalues by randomized
+	 * subspace iteration: a block of OVERSAMPLING more random vectors than
+	 * wanted is multiplied by K and orthonormalized over and over, and the
+	 * Rayleigh-Ritz projection of K onto the block yields the approximate
+	 * eigenpairs. The extra vectors let the wanted ones converge at the rate
+	 * of the gap to the first eigenvalue beyond the block rather than to the
+	 * next one, which also copes with close or equal eigenvalues. Stops once
+	 * the residuals of the wanted Ritz pairs fall below TOLERANCE relative to
+	 * the largest, or after MAX_SUBSPACE_ITERATIONS.
+	 * 
+	 * @param K
+	 *            symmetric matrix
+	 * @param eVecs
+	 *            place for return of K's eigenvectors
+	 * @param eValues
+	 *            place for return of K's eigenvalues (largest first)
+	 */
+	public static void subspaceIteration(final double[][] K, final double[][] eVecs, final double[] eValues) {
+		final int k = K.length;
+		final int d = eValues.length;
+		final int b = Math.max(d, Math.min(k, d + OVERSAMPLING));
+		final Random random = new Random(SEED);
+		final double[][] basis = new double[b][k];
+		final double[][] image = new double[b][k];
+		final double[][] ritzVectors = new double[b][k];
+		final double[][] ritzImages = new double[b][k];
+		final double[][] projection = new double[b][b];
+		final double[][] rotation = new double[b][b];
+		final double[] ritzValues = new double[b];
+		randomize(basis);
+		orthonormalize(basis, random);
+		for (int iteration = 0; iteration < MAX_SUBSPACE_ITERATIONS; iteration++) {
+			// each row of K is read once for the whole block
+			for (int i = 0; i < k; i++) {
+				final double[] row = K[i];
+				for (int m = 0; m < b; m++) {
+					image[m][i] = prod(row, basis[m]);
+				}
+			}
+			// the projection of K onto the block and its eigenpairs
+			for (int m = 0; m < b; m++) {
+				for (int p = 0; p <= m; p++) {
+					projection[m][p] = 0.5 * (prod(basis[m], image[p]) + prod(basis[p], image[m]));
+					projection[p][m] = projection[m][p];
+				}
+			}
+			jacobi(projection, rotation, ritzValues);
+			combine(rotation, basis, ritzVectors);
+			combine(rotation, image, ritzImages);
+			double residual = 0;
+			for (int m = 0; m < d; m++) {
+				double sum = 0;
+				for (int i = 0; i < k; i++) {
+					final double r = ritzImages[m][i] - ritzValues[m] * ritzVectors[m][i];
+					sum += r * r;
+				}
+				residual = Math.max(residual, Math.sqrt(sum));
+			}
+			if (residual <= TOLERANCE * Math.abs(ritzValues[0])) {
+				break;
+			}
+			// the next block spans the images of the Ritz vectors
+			for (int m = 0; m < b; m++) {
+				System.arraycopy(ritzImages[m], 0, basis[m], 0, k);
+			}
+			orthonormalize(basis, random);
+		}
+		for (int m = 0; m < d; m++) {
+			System.arraycopy(ritzVectors[m], 0, eVecs[m], 0, k);
+			eValues[m] = ritzValues[m];
+		}
+	}
+
+	/**
+	 * Orthonormalizes the vectors by the modified Gram-Schmidt method. A
+	 * vector that depends on the previous ones is replaced by a random one,
+	 * and by zero if that depends on them as well, i.e., if the vectors
+	 * outnumber the dimension.
+	 */
+	private static void orthonormalize(final double[][] vectors, final Random random) {
+		for (int m = 0; m < vectors.length; m++) {
+			final double[] vector = vectors[m];
+			for (int attempt = 0; attempt < 2; attempt++) {
+				final double length = Math.sqrt(prod(vector, vector));
+				for (int p = 0; p < m; p++) {
+					final double fac = prod(vectors[p], vector);
+					for (int i = 0; i < vector.length; i++) {
+						vector[i] -= fac * vectors[p][i];
+					}
+				}
+				if (normalize(vector) > RANK_TOLERANCE * length) {
+					break;
+				}
+				for (int i = 0; i < vector.length; i++) {
+					vector[i] = attempt == 0 ? random.nextDouble() - 0.5 : 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * result[m] = sum_j coefficients[m][j] vectors[j]
+	 */
+	private static void combine(final double[][] coefficients, final double[][] vectors, final double[][] result) {
+		for (int m = 0; m < result.length; m++) {
+			final double[] target = result[m];
+			Arrays.fill(target, 0);
+			for (int j = 0; j < vectors.length; j++) {
+				final double c = coefficients[m][j];
+				final double[] vector = vectors[j];
+				for (int i = 0; i < target.length; i++) {
+					target[i] += c * vector[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the eigenpairs of a small symmetric matrix by cyclic Jacobi
+	 * rotations, which destroy the matrix.
+	 * 
+	 * @param a
+	 *            the symmetric matrix
+	 * @param vectors
+	 *            place for the eigenvectors, one per row
+	 * @param values
+	 *            place for the eigenvalues (largest first)
+	 */
+	private static void jacobi(final double[][] a, final double[][] vectors, final double[] values) {
+		final int b = a.length;
+		for (int i = 0; i < b; i++) {
+			Arrays.fill(vectors[i], 0);
+			vectors[i][i] = 1;
+		}
+		for (int sweep = 0; sweep < MAX_JACOBI_SWEEPS; sweep++) {
+			double off = 0;
+			double diagonal = 0;
+			for (int p = 0; p < b; p++) {
+				diagonal += a[p][p] * a[p][p];
+				for (int q = p + 1; q < b; q++) {
+					off += a[p][q] * a[p][q];
+				}
+			}
+			if (off <= JACOBI_EPSILON * diagonal) {
+				break;
+			}
+			for (int p = 0; p < b; p++) {
+				for (int q = p + 1; q < b; q++) {
+					if (a[p][q] == 0) {
+						continue;
+					}
+					// the rotation that zeroes a[p][q]
+					final double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+					final double t = (theta >= 0 ? 1 : -1) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					final double c = 1 / Math.sqrt(t * t + 1);
+					final double s = t * c;
+					for (int r = 0; r < b; r++) {
+						final double ap = a[r][p];
+						final double aq = a[r][q];
+						a[r][p] = c * ap - s * aq;
+						a[r][q] = s * ap + c * aq;
+					}
+					for (int r = 0; r < b; r++) {
+						final double ap = a[p][r];
+						final double aq = a[q][r];
+						a[p][r] = c * ap - s * aq;
+						a[q][r] = s * ap + c * aq;
+					}
+					for (int r = 0; r < b; r++) {
+						final double vp = vectors[p][r];
+						final double vq = vectors[q][r];
+						vectors[p][r] = c * vp - s * vq;
+						vectors[q][r] = s * vp + c * vq;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < b; i++) {
+			values[i] = a[i][i];
+		}
+		// largest first
+		for (int i = 0; i < b; i++) {
+			int max = i;
+			for (int j = i + 1; j < b; j++) {
+				if (values[j] > values[max]) {
+					max = j;
+				}
+			}
+			final double value = values[i];
+			values[i] = values[max];
+			values[max] = value;
+			final double[] vector = vectors[i];
+			vectors[i] = vectors[max];
+			vectors[max] = vector;
+		}
+	}
+
+	/**
+	 * Adds the products of a block of columns of two rows to their entry.
+	 */
+	private static void dot(final double[][] d, final double[][] result, final int i, final int j, final int from,
+			final int to) {
+		final double[] rowI = d[i];
+		final double[] rowJ = d[j];
+		double sum = result[i][j];
+		for (int m = from; m < to; m++) {
+			sum += rowI[m] * rowJ[m];
+		}
+		result[i][j] = sum;
+	}
+
+	/**
+	 * Adds the products of a block of columns of rows i, i + 1 and j, j + 1 to
+	 * their four entries at once, each summed up in the order of the columns.
+	 */
+	private static void dot2x2(final double[][] d, final double[][] result, final int i, final int j,
+			final int from, final int to) {
+		final double[] rowI0 = d[i];
+		final double[] rowI1 = d[i + 1];
+		final double[] rowJ0 = d[j];
+		final double[] rowJ1 = d[j + 1];
+		double sum00 = result[i][j];
+		double sum01 = result[i][j + 1];
+		double sum10 = result[i + 1][j];
+		double sum11 = result[i + 1][j + 1];
+		for (int m = from; m < to; m++) {
+			final double i0 = rowI0[m];
+			final double i1 = rowI1[m];
+			final double j0 = rowJ0[m];
+			final double j1 = rowJ1[m];
+			sum00 += i0 * j0;
+			sum01 += i0 * j1;
+			sum10 += i1 * j0;
+			sum11 += i1 * j1;
+		}
+		result[i][j] = sum00;
+		result[i][j + 1] = sum01;
+		result[i + 1][j] = sum10;
+		result[i + 1][j + 1] = sum11;
+	}
+
 	/**
 	 * C^T \times X
 	 * 
@@ -277,16 +690,41 @@ public final class PivMDS {
 	 *            return array
 	 * @param result
 	 */
-	public static void product(final double[][] C, final double[][] X,
-			final double[][] result) {
-		for (int m = 0; m < result.length; m++) {
-			for (int i = 0; i < C[0].length; i++) { // knoten i
-				result[m][i] = 0;
-				for (int j = 0; j < C.length; j++) { // pivot j
-					result[m][i] += C[j][i] * X[m][j];
+	public static void product(final double[][] C, final double[][] X, final double[][] result) {
+		product(C, X, result, null);
+	}
+
+	/**
+	 * C^T \times X, a block of columns of C at a time
+	 * 
+	 * @param C
+	 * @param X
+	 *            return array
+	 * @param result
+	 * @param pool
+	 *            the pool to process the blocks, or null
+	 */
+	public static void product(final double[][] C, final double[][] X, final double[][] result,
+			final ForkJoinPool pool) {
+		final int n = C[0].length;
+		forEachBlock(pool, numOfBlocks(n, COLUMN_BLOCK), new BlockOperation() {
+			@Override
+			public void apply(final int block) {
+				final int from = block * COLUMN_BLOCK;
+				final int to = Math.min(n, from + COLUMN_BLOCK);
+				for (int m = 0; m < result.length; m++) {
+					final double[] target = result[m];
+					Arrays.fill(target, from, to, 0);
+					for (int j = 0; j < C.length; j++) { // pivot j
+						final double[] row = C[j];
+						final double x = X[m][j];
+						for (int i = from; i < to; i++) { // knoten i
+							target[i] += row[i] * x;
+						}
+					}
 				}
 			}
-		}
+		});
 	}
 
 	public static double normalize(final double[] x) {
@@ -315,6 +753,62 @@ public final class PivMDS {
 		}
 	}
 
+	private static int numOfBlocks(final int size, final int blockSize) {
+		return (size + blockSize - 1) / blockSize;
+	}
+
+	/**
+	 * Applies the operation to every block, concurrently if a pool is given.
+	 */
+	private static void forEachBlock(final ForkJoinPool pool, final int numOfBlocks, final BlockOperation operation) {
+		if (pool == null) {
+			for (int block = 0; block < numOfBlocks; block++) {
+				operation.apply(block);
+			}
+		} else if (numOfBlocks > 0) {
+			pool.invoke(new BlockTask(operation, 0, numOfBlocks));
+		}
+	}
+
+	/**
+	 * An operation on a block of a matrix, independent of the other blocks.
+	 */
+	private interface BlockOperation {
+
+		void apply(int block);
+	}
+
+	/**
+	 * Applies an operation to a range of blocks, splitting it until a single
+	 * block is left.
+	 */
+	private static final class BlockTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BlockOperation m_operation;
+
+		private final int m_from;
+
+		private final int m_to;
+
+		BlockTask(final BlockOperation operation, final int from, final int to) {
+			m_operation = operation;
+			m_from = from;
+			m_to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_to - m_from > 1) {
+				final int mid = (m_from + m_to) >>> 1;
+				invokeAll(new BlockTask(m_operation, m_from, mid), new BlockTask(m_operation, mid, m_to));
+				return;
+			}
+			m_operation.apply(m_from);
+		}
+	}
+
 	private static double prod(final double[] x, final double[] y) {
 		double result = 0;
 		for (int i = 0; i < x.length; i++) {
@@ -0,0 +1,178 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package layout;
+
+import java.util.Arrays;
+
+/**
+ * A compressed quadtree over a layout, built from the Morton order of the
+ * vertices. Every node covers a range of vertices in that order and keeps
+ * their center of mass; inner nodes have at least two children, which are
+ * stored next to each other. A leaf holds a single vertex or vertices that
+ * coincide at the resolution of the order.
+ */
+final class QuadTree {
+
+	/** bits per coordinate of the Morton order */
+	private static final int BITS = 16;
+
+	/** the size of a stack that suffices for a depth-first traversal */
+	static final int STACK_SIZE = 4 * (BITS + 1);
+
+	/** the vertices in Morton order */
+	final int[] m_order;
+
+	/** the position of each vertex in the order */
+	final int[] m_rank;
+
+	/** the range of each node in the order */
+	final int[] m_from;
+
+	final int[] m_to;
+
+	/** the first child of each node, -1 for leaves */
+	final int[] m_firstChild;
+
+	final int[] m_numOfChildren;
+
+	/** the center of mass of each node */
+	final double[] m_centerX;
+
+	final double[] m_centerY;
+
+	/** the side length of the cell of each node */
+	final double[] m_width;
+
+	private final long[] m_keys;
+
+	private int m_size;
+
+	/**
+	 * @param n
+	 *            the number of vertices
+	 */
+	QuadTree(final int n) {
+		m_order = new int[n];
+		m_rank = new int[n];
+		m_keys = new long[n];
+		final int capacity = Math.max(1, 2 * n - 1);
+		m_from = new int[capacity];
+		m_to = new int[capacity];
+		m_firstChild = new int[capacity];
+		m_numOfChildren = new int[capacity];
+		m_centerX = new double[capacity];
+		m_centerY = new double[capacity];
+		m_width = new double[capacity];
+	}
+
+	/**
+	 * Rebuilds the tree over the given layout, the root is node 0.
+	 */
+	void build(final double[] x, final double[] y) {
+		final int n = m_order.length;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			maxX = Math.max(maxX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		final int cells = 1 << BITS;
+		final double extent = Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+		final double scale = (cells - 1) / extent;
+		// the Morton code in the upper, the vertex in the lower bits
+		for (int i = 0; i < n; i++) {
+			final long code = interleave((int) ((x[i] - minX) * scale))
+					| (interleave((int) ((y[i] - minY) * scale)) << 1);
+			m_keys[i] = (code << 31) | i;
+		}
+		Arrays.sort(m_keys);
+		for (int i = 0; i < n; i++) {
+			m_order[i] = (int) (m_keys[i] & Integer.MAX_VALUE);
+			m_rank[m_order[i]] = i;
+		}
+		m_size = 1;
+		if (n > 0) {
+			build(0, 0, n, 2 * BITS - 2, extent, x, y);
+		}
+	}
+
+	private void build(final int node, final int from, final int to, int shift, final double extent,
+			final double[] x, final double[] y) {
+		m_from[node] = from;
+		m_to[node] = to;
+		double sumX = 0;
+		double sumY = 0;
+		for (int i = from; i < to; i++) {
+			sumX += x[m_order[i]];
+			sumY += y[m_order[i]];
+		}
+		m_centerX[node] = sumX / (to - from);
+		m_centerY[node] = sumY / (to - from);
+		m_firstChild[node] = -1;
+		m_numOfChildren[node] = 0;
+		// skip the levels at which all vertices fall into the same quadrant
+		while (shift >= 0 && digit(from, shift) == digit(to - 1, shift)) {
+			shift -= 2;
+		}
+		m_width[node] = extent / (1 << (BITS - 1 - shift / 2));
+		if (to - from == 1 || shift < 0) {
+			m_width[node] = 0;
+			return;
+		}
+		// the quadrants are contiguous ranges of the order
+		int numOfChildren = 0;
+		for (int i = from; i < to; i++) {
+			if (i == from || digit(i, shift) != digit(i - 1, shift)) {
+				++numOfChildren;
+			}
+		}
+		final int first = m_size;
+		m_size += numOfChildren;
+		m_firstChild[node] = first;
+		m_numOfChildren[node] = numOfChildren;
+		int child = first;
+		int start = from;
+		for (int i = from + 1; i <= to; i++) {
+			if (i == to || digit(i, shift) != digit(i - 1, shift)) {
+				build(child++, start, i, shift - 2, extent, x, y);
+				start = i;
+			}
+		}
+	}
+
+	private int digit(final int position, final int shift) {
+		return (int) (m_keys[position] >>> (31 + shift)) & 3;
+	}
+
+	/**
+	 * @return the bits of the value spread to the even positions
+	 */
+	private static long interleave(final int value) {
+		long bits = value & 0xFFFFL;
+		bits = (bits | (bits << 8)) & 0x00FF00FFL;
+		bits = (bits | (bits << 4)) & 0x0F0F0F0FL;
+		bits = (bits | (bits << 2)) & 0x33333333L;
+		bits = (bits | (bits << 1)) & 0x55555555L;
+		return bits;
+	}
+}
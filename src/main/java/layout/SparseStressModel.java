@@ -18,132 +18,1167 @@
  */
 package layout;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 
 import data_structures.DoubleArray;
 import data_structures.IntArray;
 import data_structures.StressData;
 import graph.Graph;
+import helpers.IncrementalMSSP;
 import helpers.Options;
 import helpers.StressFactory;
+import helpers.StressFactory.FAR_FIELD;
+import helpers.StressFactory.SOLVER;
 
 public final class SparseStressModel {
 
 	private static final int OVERLAP_SEED = 100;
 
-	private final int BREAK_CONDITION_INTERVAL = 10;
+	/** minimum relative improvement of the sparse stress per iteration */
+	private static final double BREAK_CONDITION = 0.0001;
+
+	/**
+	 * Number of chunks per thread, more chunks let the pool balance what the
+	 * term counts do not predict.
+	 */
+	private static final int CHUNKS_PER_THREAD = 8;
+
+	/** ratio of the final to the initial step size of the gradient descent */
+	private static final double SGD_EPSILON = 0.1;
+
+	/**
+	 * Largest move of a vertex in a sweep of the gradient descent, relative to
+	 * the average edge weight, below which it has converged.
+	 */
+	private static final double SGD_DISPLACEMENT = 0.03;
+
+	/**
+	 * Relative improvement per iteration below which the progressive mode
+	 * doubles the pivots.
+	 */
+	private static final double PROGRESS_CONDITION = 0.01;
+
+	/**
+	 * Largest ratio of the width of a quadtree cell to its distance at which
+	 * the cell votes as a whole in the Barnes-Hut far field.
+	 */
+	private static final double THETA = 0.6;
+
+	/** every this many sweeps the active set relaxes all vertices */
+	private static final int FULL_SWEEP_INTERVAL = 10;
+
+	private Graph m_graph;
+
+	private StressData m_stressData;
+
+	private double[][] m_blockWeights;
+
+	private double[][] m_blockDistances;
+
+	/** the pivot coordinates, read from small buffers that stay in cache */
+	private double[] m_pivotX;
+
+	private double[] m_pivotY;
+
+	/** the pivot slots in the order in which the sweep passes the pivots */
+	private int[] m_pivotOrder;
+
+	/** the first vertex of each chunk of the parallel sweep */
+	private int[] m_chunkStarts;
+
+	/** the largest number of pivot slots of the stress data */
+	private int m_numOfSlots;
+
+	/** the quadtree of the Barnes-Hut far field, null for pivot terms */
+	private QuadTree m_tree;
+
+	/**
+	 * with a far field or an active set, the pivot slot of each vertex, -1 for
+	 * other vertices
+	 */
+	private int[] m_pivotSlots;
+
+	/** with a far field, the slot of the closest pivot of each vertex */
+	private int[] m_clusters;
+
+	/** with a far field, the distance of each vertex to its closest pivot */
+	private double[] m_clusterDistances;
+
+	/** the value of System.nanoTime() at which to stop iterating */
+	private long m_deadline = Long.MAX_VALUE;
+
+	/** with a deadline, the layout of least sparse stress measured so far */
+	private double[] m_bestX;
+
+	private double[] m_bestY;
+
+	private double m_bestStress;
+
+	/** with a deadline, the sparse stress of the final layout */
+	private double m_sparseStress = Double.NaN;
+
+	/** the vertices that keep their position, null if all move */
+	private boolean[] m_fixed;
+
+	/** whether the start layout is taken as is */
+	private boolean m_warmStart;
+
+	/** the stress data given instead of sampling the pivots */
+	private StressData m_givenData;
+
+	/** squared displacement from which a vertex keeps its dependents active */
+	private double m_activeThreshold;
+
+	/** the vertices relaxed in the current sweep, null without active set */
+	private boolean[] m_active;
+
+	/** the vertices to relax in the next sweep */
+	private boolean[] m_nextActive;
+
+	/** the sparse stress of each vertex at its last relaxation */
+	private double[] m_vertexStress;
+
+	/** whether a pivot moved at least the threshold in the current sweep */
+	private boolean m_pivotMoved;
+
+	/** the scratch space of each thread */
+	private final ThreadLocal<StressKernel> m_kernels = new ThreadLocal<StressKernel>() {
+		@Override
+		protected StressKernel initialValue() {
+			return m_tree == null ? new StressKernel(m_numOfSlots) : new StressKernel(m_numOfSlots, m_graph.n());
+		}
+	};
+
+	/**
+	 * Stops the iterations once the next one would not end before the given
+	 * time, and keeps the layout of least sparse stress reached.
+	 * 
+	 * @param deadline
+	 *            the deadline in terms of {@link System#nanoTime()}
+	 */
+	public void setDeadline(final long deadline) {
+		m_deadline = deadline;
+	}
+
+	/**
+	 * Keeps the given vertices at their position. They still act as
+	 * neighbors and pivots of the others, and since they determine the scale,
+	 * the start layout is neither rescaled nor jittered.
+	 * 
+	 * @param fixed
+	 *            whether each vertex is fixed, or null if all move
+	 */
+	public void setFixed(final boolean[] fixed) {
+		m_fixed = fixed;
+	}
+
+	/**
+	 * Takes the start layout as is, i.e., neither rescales nor jitters it,
+	 * for a layout that is already close to the result.
+	 */
+	public void setWarmStart(final boolean warmStart) {
+		m_warmStart = warmStart;
+	}
+
+	/**
+	 * Uses the given stress data instead of sampling pivots. It is closed by
+	 * the layout.
+	 * 
+	 * @param sData
+	 *            the sealed stress data of the graph
+	 */
+	public void setStressData(final StressData sData) {
+		m_givenData = sData;
+	}
+
+	/**
+	 * @return the sparse stress of the pivot terms of the final layout if a
+	 *         deadline is set, NaN otherwise
+	 */
+	public double getSparseStress() {
+		return m_sparseStress;
+	}
 
 	public double[] doLayout(final Graph g, final double[] layout, final Options options) {
-		// calculate sparse stress data
-		final StressData sData = StressFactory.globalSampling(g, options);
-		// prepare weights
-		normalizeWeights(sData.getWeights());
-		// prepare layout
-		scaleAvgEdgeLength(g, layout);
-		// minimize sparse stress model
-		doStressLayout(g, layout, sData, options.getNumOfIter(), options.useBreakCondition());
+		// calculate sparse stress data, progressively starting from a few pivots
+		IncrementalMSSP progression = null;
+		StressData sData = null;
+		if (m_givenData != null) {
+			sData = m_givenData;
+		} else if (options.isProgressive() && options.getProgressivePivots() < options.getNumOfPiv()) {
+			progression = StressFactory.progressiveSampling(g, options);
+			sData = progression.extend(options.getProgressivePivots());
+		} else {
+			sData = StressFactory.globalSampling(g, options);
+		}
+		ForkJoinPool pool = null;
+		try {
+			m_graph = g;
+			m_numOfSlots = progression == null ? sData.getPivots().length : progression.getMaxNumOfPivots();
+			if (options.getNumOfThreads() > 1) {
+				pool = new ForkJoinPool(options.getNumOfThreads());
+			}
+			if (options.getFarField() == FAR_FIELD.BARNES_HUT) {
+				m_tree = new QuadTree(g.n());
+			}
+			if (options.hasActiveSet()) {
+				final double threshold = options.getActiveThreshold() * avgEdgeWeight(g);
+				m_activeThreshold = threshold * threshold;
+				m_active = new boolean[g.n()];
+				m_nextActive = new boolean[g.n()];
+				m_vertexStress = new double[g.n()];
+			}
+			prepare(sData, pool);
+			// the coordinates are kept in separate arrays
+			final double[] x = new double[g.n()];
+			final double[] y = new double[g.n()];
+			for (int i = 0; i < x.length; i++) {
+				x[i] = layout[i << 1];
+				y[i] = layout[(i << 1) + 1];
+			}
+			// prepare layout
+			if (m_fixed == null && !m_warmStart) {
+				scaleAvgEdgeLength(g, x, y);
+			}
+			// minimize sparse stress model
+			if (m_deadline != Long.MAX_VALUE) {
+				m_bestX = new double[x.length];
+				m_bestY = new double[y.length];
+				m_bestStress = Double.POSITIVE_INFINITY;
+			}
+			if (options.getSolver() == SOLVER.SGD) {
+				doGradientLayout(x, y, pool, options.getNumOfIter(), options.useBreakCondition(), options.getSeed());
+			} else {
+				doStressLayout(x, y, pool, options.getNumOfIter(), options.useBreakCondition(),
+						options.getMomentum(), progression);
+			}
+			if (m_deadline != Long.MAX_VALUE) {
+				keepBest(x, y);
+			}
+			for (int i = 0; i < x.length; i++) {
+				layout[i << 1] = x[i];
+				layout[(i << 1) + 1] = y[i];
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+				// off-heap terms are freed below, which no task may still read
+				try {
+					pool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (m_stressData != null) {
+				m_stressData.close();
+			} else {
+				sData.close();
+			}
+		}
 		// return the layout
 		return layout;
 	}
 
-	private void doStressLayout(final Graph g, final double[] layout, final StressData stressData, final int numOfIter,
-			final boolean useBC) {
-		// used to shuffel the update order
-		int timeToBreak = BREAK_CONDITION_INTERVAL;
-		double prevStress = 0;
-		int i;
-		for (i = 1; i <= numOfIter; ++i) {
-			minimizeStress(layout, stressData);
-			if (useBC) {
-				if (--timeToBreak == 1) {
-					prevStress = calcIntermediateStress(g, layout, stressData.getDistances(),
-							stressData.getPositions());
+	/**
+	 * Derives the weights from the stress data and sets up the buffers of the
+	 * sweep.
+	 */
+	private void prepare(final StressData sData, final ForkJoinPool pool) {
+		m_stressData = sData;
+		m_blockWeights = calcBlockWeights(sData);
+		m_blockDistances = getBlockDistances(sData);
+		normalizeWeights(m_graph, sData, m_blockWeights);
+		m_pivotX = new double[sData.getPivots().length];
+		m_pivotY = new double[sData.getPivots().length];
+		m_pivotOrder = sortSlotsByVertex(sData.getPivots());
+		if (pool != null) {
+			m_chunkStarts = partitionByTerms(pool.getParallelism() * CHUNKS_PER_THREAD);
+		}
+		if (m_tree != null) {
+			assignClusters();
+		} else if (m_active != null) {
+			indexPivots();
+		}
+	}
+
+	private void indexPivots() {
+		final int[] pivots = m_stressData.getPivots();
+		m_pivotSlots = new int[m_graph.n()];
+		Arrays.fill(m_pivotSlots, -1);
+		for (int slot = 0; slot < pivots.length; slot++) {
+			m_pivotSlots[pivots[slot]] = slot;
+		}
+	}
+
+	/**
+	 * Assigns each vertex to its closest pivot, which represents it in the far
+	 * field. Pivot terms of the pivot neighbors are not stored, their distance
+	 * is taken from the graph.
+	 */
+	private void assignClusters() {
+		final int n = m_graph.n();
+		final int[] pivots = m_stressData.getPivots();
+		indexPivots();
+		m_clusters = new int[n];
+		m_clusterDistances = new double[n];
+		final int[] slots = new int[pivots.length];
+		final int[] blocks = new int[pivots.length];
+		for (int i = 0; i < n; i++) {
+			int cluster = m_pivotSlots[i];
+			double distance = cluster < 0 ? Double.POSITIVE_INFINITY : 0;
+			for (int j = 0, e = m_stressData.getTerms(i, slots, blocks); j < e; j++) {
+				if (m_blockDistances[slots[j]][blocks[j]] < distance) {
+					cluster = slots[j];
+					distance = m_blockDistances[slots[j]][blocks[j]];
 				}
-				if (timeToBreak == 0) {
-					timeToBreak = BREAK_CONDITION_INTERVAL;
-					double cur = calcIntermediateStress(g, layout, stressData.getDistances(),
-							stressData.getPositions());
-					if ((prevStress - cur) / prevStress < 0.0001) {
-						break;
-					}
+			}
+			final int[] neighbors = m_graph.getNeighbors(i);
+			final double[] weights = m_graph.getWeights(i);
+			for (int j = 0; j < neighbors.length; j++) {
+				if (m_pivotSlots[neighbors[j]] >= 0 && weights[j] < distance) {
+					cluster = m_pivotSlots[neighbors[j]];
+					distance = weights[j];
 				}
 			}
+			m_clusters[i] = cluster;
+			m_clusterDistances[i] = distance;
 		}
 	}
 
-	private void minimizeStress(final double[] layout, final StressData stressData) {
-		final DoubleArray[] dWeights = stressData.getWeights();
-		final DoubleArray[] dDistances = stressData.getDistances();
-		final IntArray[] dPositions = stressData.getPositions();
-		double refPointX;
-		double refPointY;
-		double[] weights;
-		double[] distances;
-		int[] positions;
-		double weight;
-		double distance;
-		int voteIndex;
-		double votePointX;
-		double votePointY;
-		double euclideanDistance;
-		for (int pos = 0; pos < dWeights.length; pos++) {
-			double newXCoord = 0;
-			double newYCoord = 0;
-			int index = pos << 1;
-			refPointX = layout[index];
-			refPointY = layout[index + 1];
-			weights = dWeights[pos].getData();
-			distances = dDistances[pos].getData();
-			positions = dPositions[pos].getData();
-
-			for (int i = 0; i < dPositions[pos].size(); i++) {
-				voteIndex = positions[i] << 1;
-				votePointX = layout[voteIndex];
-				votePointY = layout[voteIndex + 1];
-				euclideanDistance = calcEucDist(refPointX, refPointY, votePointX, votePointY);
-				if (euclideanDistance != 0) {
-					weight = weights[i];
-					distance = distances[i] / euclideanDistance;
-					newXCoord += weight * (votePointX + distance * (refPointX - votePointX));
-					newYCoord += weight * (votePointY + distance * (refPointY - votePointY));
+	/**
+	 * Iterates the majorization sweep. With a positive momentum the iterates
+	 * are extrapolated, x' = T(x) + beta (T(x) - x), where beta grows as in
+	 * Nesterov's method up to the momentum. The next sweep measures the
+	 * stress of the extrapolated layout; if it exceeds the stress of the
+	 * previous start, the layout falls back to the plain iterate T(x) and the
+	 * momentum restarts from zero. With a progression, the pivots are doubled
+	 * whenever an iteration improves by less than PROGRESS_CONDITION, and the
+	 * break condition only applies once all pivots are added. With an active
+	 * set, a sweep only relaxes the vertices that moved in the previous one
+	 * and those depending on them; every FULL_SWEEP_INTERVAL sweeps, and after
+	 * the layout changed otherwise, all vertices are relaxed. The stress of the
+	 * skipped vertices is stale, so the break condition then only compares
+	 * full sweeps, by their average improvement per sweep, and a sweep that
+	 * seems to stall is followed by a full one.
+	 */
+	private void doStressLayout(final double[] x, final double[] y, final ForkJoinPool pool, final int numOfIter,
+			final boolean useBC, final double momentum, final IncrementalMSSP progression) {
+		double prevStress = Double.POSITIVE_INFINITY;
+		// the parallel sweep writes into second buffers
+		double[] currentX = x;
+		double[] currentY = y;
+		double[] nextX = pool == null ? null : new double[x.length];
+		double[] nextY = pool == null ? null : new double[y.length];
+		// the start and the plain result of the last sweep
+		final boolean accelerate = momentum > 0;
+		final boolean track = m_deadline != Long.MAX_VALUE;
+		final double[] startX = accelerate || track ? new double[x.length] : null;
+		final double[] startY = accelerate || track ? new double[y.length] : null;
+		final double[] plainX = accelerate ? new double[x.length] : null;
+		final double[] plainY = accelerate ? new double[y.length] : null;
+		boolean extrapolated = false;
+		int sinceRestart = 0;
+		long sweepTime = 0;
+		boolean fullSweep = true;
+		double fullStress = Double.POSITIVE_INFINITY;
+		int fullIter = 0;
+		int i;
+		for (i = 1; i <= numOfIter && hasTimeFor(sweepTime); ++i) {
+			final long sweepStart = System.nanoTime();
+			final boolean full = fullSweep || i % FULL_SWEEP_INTERVAL == 0;
+			if (m_active != null) {
+				startSweep(full);
+				fullSweep = false;
+			}
+			if (m_tree != null) {
+				m_tree.build(currentX, currentY);
+			}
+			if (accelerate || track) {
+				System.arraycopy(currentX, 0, startX, 0, x.length);
+				System.arraycopy(currentY, 0, startY, 0, y.length);
+			}
+			// the sparse stress of the layout before the sweep
+			final double stress;
+			if (pool == null) {
+				stress = minimizeStress(currentX, currentY);
+			} else {
+				stress = minimizeStress(pool, currentX, currentY, nextX, nextY);
+				double[] swap = currentX;
+				currentX = nextX;
+				nextX = swap;
+				swap = currentY;
+				currentY = nextY;
+				nextY = swap;
+			}
+			if (track) {
+				offerBest(stress, startX, startY);
+			}
+			sweepTime = System.nanoTime() - sweepStart;
+			if (accelerate) {
+				if (extrapolated && stress > prevStress) {
+					// the extrapolation did not pay off, continue from the plain iterate
+					System.arraycopy(plainX, 0, currentX, 0, x.length);
+					System.arraycopy(plainY, 0, currentY, 0, y.length);
+					extrapolated = false;
+					sinceRestart = 0;
+					fullSweep = true;
+					continue;
+				}
+				System.arraycopy(currentX, 0, plainX, 0, x.length);
+				System.arraycopy(currentY, 0, plainY, 0, y.length);
+				final double beta = Math.min(momentum, sinceRestart / (sinceRestart + 3d));
+				for (int j = 0; j < x.length; j++) {
+					currentX[j] += beta * (currentX[j] - startX[j]);
+					currentY[j] += beta * (currentY[j] - startY[j]);
 				}
+				extrapolated = beta > 0;
+				++sinceRestart;
 			}
-			layout[index] = newXCoord;
-			layout[index + 1] = newYCoord;
+			if (progression != null && progression.hasMore()
+					&& (prevStress - stress) / prevStress < PROGRESS_CONDITION) {
+				// the sparse stress of more pivots is not comparable to the previous one
+				prepare(progression.extend(2 * progression.getNumOfPivots()), pool);
+				prevStress = Double.POSITIVE_INFINITY;
+				fullStress = Double.POSITIVE_INFINITY;
+				m_bestStress = Double.POSITIVE_INFINITY;
+				extrapolated = false;
+				sinceRestart = 0;
+				fullSweep = true;
+				continue;
+			}
+			if (useBC && m_active == null) {
+				if ((prevStress - stress) / prevStress < BREAK_CONDITION) {
+					break;
+				}
+			} else if (useBC && full) {
+				if ((fullStress - stress) / fullStress < BREAK_CONDITION * (i - fullIter)) {
+					break;
+				}
+				fullStress = stress;
+				fullIter = i;
+			} else if (useBC && (prevStress - stress) / prevStress < BREAK_CONDITION) {
+				// a stall of the stale stress is confirmed by a full sweep
+				fullSweep = true;
+			}
+			prevStress = stress;
+		}
+		// an extrapolated layout has not been evaluated
+		if (extrapolated) {
+			System.arraycopy(plainX, 0, currentX, 0, x.length);
+			System.arraycopy(plainY, 0, currentY, 0, y.length);
+		}
+		if (currentX != x) {
+			System.arraycopy(currentX, 0, x, 0, x.length);
+			System.arraycopy(currentY, 0, y, 0, y.length);
 		}
 	}
 
-	private double calcIntermediateStress(final Graph g, final double[] layout, final DoubleArray[] distances,
-			final IntArray[] positions) {
+	/**
+	 * Stochastic gradient descent as proposed by Zheng, Pawar and Goodman
+	 * (Graph Drawing by Stochastic Gradient Descent, 2018). Every iteration
+	 * visits the vertices in a new random order and moves each towards the
+	 * target distances of its terms one after the other; the step size is
+	 * annealed exponentially from 1/w_min to SGD_EPSILON/w_max. Every term
+	 * only moves its own vertex, so that the parallel mode can update the
+	 * vertices without locks, reading whatever positions the other threads
+	 * have written so far. This makes its result depend on the schedule.
+	 */
+	private void doGradientLayout(final double[] x, final double[] y, final ForkJoinPool pool, final int numOfIter,
+			final boolean useBC, final long seed) {
+		final Random rand = new Random(seed);
+		final int[] order = new int[x.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		// the range of the weights determines the step sizes
+		double minWeight = Double.POSITIVE_INFINITY;
+		double maxWeight = 0;
+		for (final double[] weights : m_blockWeights) {
+			for (final double weight : weights) {
+				minWeight = Math.min(minWeight, weight);
+				maxWeight = Math.max(maxWeight, weight);
+			}
+		}
+		for (int i = 0; i < order.length; i++) {
+			for (final double distance : m_graph.getWeights(i)) {
+				minWeight = Math.min(minWeight, 1d / (distance * distance));
+				maxWeight = Math.max(maxWeight, 1d / (distance * distance));
+			}
+		}
+		if (maxWeight == 0) {
+			return;
+		}
+		final double maxEta = 1d / minWeight;
+		final double minEta = SGD_EPSILON / maxWeight;
+		final double lambda = numOfIter > 1 ? Math.log(maxEta / minEta) / (numOfIter - 1) : 0;
+		// with a deadline the schedule also follows the elapsed time
+		final boolean track = m_deadline != Long.MAX_VALUE;
+		final double[] startX = track ? new double[x.length] : null;
+		final double[] startY = track ? new double[y.length] : null;
+		final long begin = System.nanoTime();
+		// the stress of large steps fluctuates, so convergence is judged by
+		// the largest move as in Zheng et al.
+		final double displacement = SGD_DISPLACEMENT * avgEdgeWeight(m_graph);
+		final double[] moves = new double[pool == null ? 1 : m_chunkStarts.length - 1];
+		long sweepTime = 0;
+		for (int i = 0; i < numOfIter && hasTimeFor(sweepTime); i++) {
+			final long sweepStart = System.nanoTime();
+			shuffle(order, rand);
+			double eta = maxEta * Math.exp(-lambda * i);
+			if (track) {
+				System.arraycopy(x, 0, startX, 0, x.length);
+				System.arraycopy(y, 0, startY, 0, y.length);
+				final double progress = (sweepStart - begin) / (double) (m_deadline - begin);
+				eta = Math.min(eta, maxEta * Math.pow(minEta / maxEta, Math.min(progress, 1)));
+			}
+			final double stress;
+			if (pool == null) {
+				stress = descend(order, 0, order.length, x, y, eta, m_kernels.get(), moves, 0);
+			} else {
+				final double[] partial = new double[m_chunkStarts.length - 1];
+				pool.invoke(new GradientTask(order, x, y, eta, partial, moves, 0, partial.length));
+				stress = sum(partial);
+			}
+			if (track) {
+				offerBest(stress, startX, startY);
+			}
+			sweepTime = System.nanoTime() - sweepStart;
+			if (useBC && Math.sqrt(max(moves)) < displacement) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return whether another iteration of the given duration and the final
+	 *         measurement of the sparse stress end before the deadline
+	 */
+	private boolean hasTimeFor(final long sweepTime) {
+		return m_deadline == Long.MAX_VALUE || System.nanoTime() + 2 * sweepTime <= m_deadline;
+	}
+
+	/**
+	 * Remembers the layout if its sparse stress is the least so far.
+	 */
+	private void offerBest(final double stress, final double[] x, final double[] y) {
+		if (stress < m_bestStress) {
+			m_bestStress = stress;
+			System.arraycopy(x, 0, m_bestX, 0, x.length);
+			System.arraycopy(y, 0, m_bestY, 0, y.length);
+		}
+	}
+
+	/**
+	 * Measures the sparse stress of the final layout and replaces it by the
+	 * best one if that has less.
+	 */
+	private void keepBest(final double[] x, final double[] y) {
+		if (m_tree != null) {
+			keepBestFarField(x, y);
+			return;
+		}
+		final int[] pivots = m_stressData.getPivots();
+		final StressKernel kernel = m_kernels.get();
+		final int[] slots = kernel.m_slots;
+		final int[] blocks = kernel.m_blocks;
 		double stress = 0;
-		for (int i = 0; i < distances.length; i++) {
-			final double[] distance = distances[i].getData();
-			final int[] pos = positions[i].getData();
-			for (int j = 0, e = distances[i].size() - g.degree(i); j < e; j++) {
-				double addend = 0;
-				if (distance[j] > 0) {
-					addend = calcEucDist(layout, i, pos[j]) / distance[j] - 1;
-				}
-				stress += addend * addend;
+		for (int i = 0, n = m_stressData.size(); i < n; i++) {
+			if (m_fixed != null && m_fixed[i]) {
+				continue;
 			}
+			kernel.clear();
+			for (int j = 0, e = m_stressData.getTerms(i, slots, blocks); j < e; j++) {
+				final int pivot = pivots[slots[j]];
+				kernel.measurePivot(x[i], y[i], x[pivot], y[pivot], m_blockDistances[slots[j]][blocks[j]]);
+			}
+			stress += kernel.getStress();
+		}
+		m_sparseStress = stress;
+		if (m_bestStress < stress) {
+			m_sparseStress = m_bestStress;
+			System.arraycopy(m_bestX, 0, x, 0, x.length);
+			System.arraycopy(m_bestY, 0, y, 0, y.length);
+		}
+	}
+
+	/**
+	 * Measures the far field stress of the final layout, which the sweeps
+	 * track, and replaces it by the best one if that has less.
+	 */
+	private void keepBestFarField(final double[] x, final double[] y) {
+		final StressKernel kernel = m_kernels.get();
+		final double[] targetX = new double[x.length];
+		final double[] targetY = new double[y.length];
+		m_tree.build(x, y);
+		double stress = 0;
+		for (int i = 0; i < x.length; i++) {
+			relax(i, x, y, targetX, targetY, kernel);
+			stress += kernel.getStress();
+		}
+		m_sparseStress = stress;
+		if (m_bestStress < stress) {
+			m_sparseStress = m_bestStress;
+			System.arraycopy(m_bestX, 0, x, 0, x.length);
+			System.arraycopy(m_bestY, 0, y, 0, y.length);
 		}
+	}
+
+	private void shuffle(final int[] order, final Random rand) {
+		for (int i = order.length - 1; i > 0; i--) {
+			final int j = rand.nextInt(i + 1);
+			final int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+	}
+
+	/**
+	 * Moves the vertices order[from], ..., order[to - 1] one after the other
+	 * by gradient steps along their terms.
+	 * 
+	 * @param moves
+	 *            receives at index chunk the largest squared move of a vertex
+	 * @return the sparse stress of the pivot terms, each measured before its
+	 *         step
+	 */
+	private double descend(final int[] order, final int from, final int to, final double[] x, final double[] y,
+			final double eta, final StressKernel kernel, final double[] moves, final int chunk) {
+		final int[] pivots = m_stressData.getPivots();
+		final double[][] blockWeights = m_blockWeights;
+		final double[][] blockDistances = m_blockDistances;
+		final int[] slots = kernel.m_slots;
+		final int[] blocks = kernel.m_blocks;
+		double stress = 0;
+		double maxMove = 0;
+		for (int k = from; k < to; k++) {
+			final int pos = order[k];
+			if (m_fixed != null && m_fixed[pos]) {
+				continue;
+			}
+			final int size = m_stressData.getTerms(pos, slots, blocks);
+			final double[] distances = m_graph.getWeights(pos);
+			final int[] positions = m_graph.getNeighbors(pos);
+			kernel.moveFrom(x[pos], y[pos]);
+			for (int i = 0; i < size; i++) {
+				final int slot = slots[i];
+				final int pivot = pivots[slot];
+				final double mu = Math.min(eta * blockWeights[slot][blocks[i]], 1);
+				kernel.stepPivot(x[pivot], y[pivot], mu, blockDistances[slot][blocks[i]]);
+			}
+			for (int i = 0; i < positions.length; i++) {
+				final int index = positions[i];
+				final double mu = Math.min(eta / (distances[i] * distances[i]), 1);
+				kernel.step(x[index], y[index], mu, distances[i]);
+			}
+			final double dx = kernel.getX() - x[pos];
+			final double dy = kernel.getY() - y[pos];
+			maxMove = Math.max(maxMove, dx * dx + dy * dy);
+			x[pos] = kernel.getX();
+			y[pos] = kernel.getY();
+			stress += kernel.getStress();
+		}
+		moves[chunk] = maxMove;
 		return stress;
 	}
 
-	private void normalizeWeights(final DoubleArray[] weights) {
-		for (final DoubleArray weight : weights) {
+	/**
+	 * @return the largest of the values
+	 */
+	private static double max(final double[] values) {
+		double max = 0;
+		for (final double value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	/**
+	 * @return the sum of the values, added in the order of the array
+	 */
+	private double sum(final double[] values) {
+		double sum = 0;
+		for (int i = 0; i < values.length; i++) {
+			sum += values[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Sorts the pivot slots by the vertex id of their pivot.
+	 * 
+	 * @param pivots
+	 *            the pivot-id table
+	 * @return the slots in ascending order of their vertex ids
+	 */
+	private int[] sortSlotsByVertex(final int[] pivots) {
+		final long[] keys = new long[pivots.length];
+		for (int i = 0; i < pivots.length; i++) {
+			keys[i] = ((long) pivots[i] << 32) | i;
+		}
+		Arrays.sort(keys);
+		final int[] order = new int[pivots.length];
+		for (int i = 0; i < pivots.length; i++) {
+			order[i] = (int) keys[i];
+		}
+		return order;
+	}
+
+	/**
+	 * Splits the vertices into consecutive chunks of about the same number of
+	 * pivot and neighbor terms.
+	 * 
+	 * @param numOfChunks
+	 *            the requested number of chunks
+	 * @return the first vertex of each chunk followed by n
+	 */
+	private int[] partitionByTerms(final int numOfChunks) {
+		final int n = m_stressData.size();
+		final int chunks = Math.max(1, Math.min(numOfChunks, n));
+		long total = 0;
+		for (int i = 0; i < n; i++) {
+			total += cost(i);
+		}
+		final int[] starts = new int[chunks + 1];
+		long prefix = 0;
+		int chunk = 1;
+		for (int i = 0; i < n && chunk < chunks; i++) {
+			prefix += cost(i);
+			while (chunk < chunks && prefix * chunks >= total * chunk) {
+				starts[chunk++] = i + 1;
+			}
+		}
+		while (chunk <= chunks) {
+			starts[chunk++] = n;
+		}
+		return starts;
+	}
+
+	private long cost(final int index) {
+		return m_stressData.getNumOfTerms(index) + m_graph.getNeighbors(index).length + 1;
+	}
+
+	private void fillPivotLayout(final double[] x, final double[] y) {
+		final int[] pivots = m_stressData.getPivots();
+		for (int i = 0; i < pivots.length; i++) {
+			m_pivotX[i] = x[pivots[i]];
+			m_pivotY[i] = y[pivots[i]];
+		}
+	}
+
+	/**
+	 * Gauss-Seidel sweep, every vertex sees the already updated positions.
+	 * 
+	 * @return the sparse stress of the pivot terms measured along the sweep,
+	 *         each vertex at its position before its update
+	 */
+	private double minimizeStress(final double[] x, final double[] y) {
+		final int[] pivots = m_stressData.getPivots();
+		final int[] pivotOrder = m_pivotOrder;
+		final StressKernel kernel = m_kernels.get();
+		fillPivotLayout(x, y);
+		int nextPivot = 0;
+		double stress = 0;
+		for (int pos = 0, n = m_stressData.size(); pos < n; pos++) {
+			stress += update(pos, x, y, x, y, kernel);
+			// keep the pivot buffer in sync with the layout
+			while (nextPivot < pivotOrder.length && pivots[pivotOrder[nextPivot]] == pos) {
+				m_pivotX[pivotOrder[nextPivot]] = x[pos];
+				m_pivotY[pivotOrder[nextPivot]] = y[pos];
+				++nextPivot;
+			}
+		}
+		return stress;
+	}
+
+	/**
+	 * Jacobi sweep, every vertex is moved with respect to the positions before
+	 * the sweep, hence the result does not depend on the schedule.
+	 * 
+	 * @return the sparse stress of the pivot terms before the sweep
+	 */
+	private double minimizeStress(final ForkJoinPool pool, final double[] x, final double[] y,
+			final double[] targetX, final double[] targetY) {
+		fillPivotLayout(x, y);
+		final double[] partial = new double[m_chunkStarts.length - 1];
+		pool.invoke(new SweepTask(x, y, targetX, targetY, partial, 0, partial.length));
+		// the partial sums are added in chunk order to stay deterministic
+		return sum(partial);
+	}
+
+	/**
+	 * Activates all vertices, or those marked in the last sweep, and clears
+	 * the marks of the next one. A moved pivot activates all vertices, since
+	 * it has a term with every vertex it reaches but its neighbors.
+	 */
+	private void startSweep(final boolean full) {
+		if (full || m_pivotMoved) {
+			Arrays.fill(m_active, true);
+		} else {
+			final boolean[] swap = m_active;
+			m_active = m_nextActive;
+			m_nextActive = swap;
+		}
+		Arrays.fill(m_nextActive, false);
+		m_pivotMoved = false;
+	}
+
+	/**
+	 * Relaxes a vertex unless the active set skips it. A vertex that moves at
+	 * least the threshold marks itself and its neighbors for the next sweep,
+	 * a pivot all vertices. The marks of concurrent sweeps only ever set
+	 * flags, so their order does not matter.
+	 * 
+	 * @return the sparse stress of the vertex, that of its last relaxation if
+	 *         skipped
+	 * @see #relax(int, double[], double[], double[], double[], StressKernel)
+	 */
+	private double update(final int pos, final double[] x, final double[] y, final double[] targetX,
+			final double[] targetY, final StressKernel kernel) {
+		if (m_active == null) {
+			relax(pos, x, y, targetX, targetY, kernel);
+			return kernel.getStress();
+		}
+		final double refX = x[pos];
+		final double refY = y[pos];
+		if (!m_active[pos]) {
+			targetX[pos] = refX;
+			targetY[pos] = refY;
+			return m_vertexStress[pos];
+		}
+		relax(pos, x, y, targetX, targetY, kernel);
+		m_vertexStress[pos] = kernel.getStress();
+		final double dx = targetX[pos] - refX;
+		final double dy = targetY[pos] - refY;
+		if (dx * dx + dy * dy >= m_activeThreshold) {
+			final boolean[] next = m_nextActive;
+			next[pos] = true;
+			for (final int neighbor : m_graph.getNeighbors(pos)) {
+				next[neighbor] = true;
+			}
+			if (m_pivotSlots[pos] >= 0) {
+				m_pivotMoved = true;
+			}
+		}
+		return m_vertexStress[pos];
+	}
+
+	/**
+	 * Moves a vertex to the weighted average of the positions its terms vote
+	 * for, the kernel keeps the sparse stress of its pivot terms.
+	 * 
+	 * @param pos
+	 *            the vertex
+	 * @param x
+	 *            the x-coordinates the neighbor positions are read from
+	 * @param y
+	 *            the y-coordinates the neighbor positions are read from
+	 * @param targetX
+	 *            the x-coordinates the new position is written to
+	 * @param targetY
+	 *            the y-coordinates the new position is written to
+	 * @param kernel
+	 *            the scratch space of the current thread
+	 */
+	private void relax(final int pos, final double[] x, final double[] y, final double[] targetX,
+			final double[] targetY, final StressKernel kernel) {
+		if (m_fixed != null && m_fixed[pos]) {
+			kernel.clear();
+			targetX[pos] = x[pos];
+			targetY[pos] = y[pos];
+			return;
+		}
+		if (m_tree != null) {
+			relaxFarField(pos, x, y, targetX, targetY, kernel);
+			return;
+		}
+		final double[] pivotX = m_pivotX;
+		final double[] pivotY = m_pivotY;
+		final double[][] blockWeights = m_blockWeights;
+		final double[][] blockDistances = m_blockDistances;
+		final int[] slots = kernel.m_slots;
+		final int[] blocks = kernel.m_blocks;
+		final int size = m_stressData.getTerms(pos, slots, blocks);
+		final double[] distances = m_graph.getWeights(pos);
+		final int[] positions = m_graph.getNeighbors(pos);
+		final double refX = x[pos];
+		final double refY = y[pos];
+		kernel.clear();
+		// pivot terms, the weights are derived from the distance blocks
+		for (int i = 0; i < size; i++) {
+			final int slot = slots[i];
+			kernel.votePivot(refX, refY, pivotX[slot], pivotY[slot], blockWeights[slot][blocks[i]],
+					blockDistances[slot][blocks[i]]);
+		}
+		// neighbor terms are read from the graph
+		for (int i = 0; i < positions.length; i++) {
+			final int index = positions[i];
+			kernel.vote(refX, refY, x[index], y[index], 1d / (distances[i] * distances[i]), distances[i]);
+		}
+		final double normalization = m_stressData.getNormalization()[pos];
+		targetX[pos] = kernel.getSumX() * normalization;
+		targetY[pos] = kernel.getSumY() * normalization;
+	}
+
+	/**
+	 * Moves a vertex with respect to its neighbors and the Barnes-Hut far field
+	 * of all other vertices. A quadtree cell that appears narrower than THETA
+	 * from the vertex votes at its center of mass for all its vertices. The
+	 * graph distance to them is estimated by the distance of the vertex to the
+	 * pivot of the median vertex of the cell plus the distance of that vertex
+	 * to its pivot. The stress measured is that of all terms voted for.
+	 */
+	private void relaxFarField(final int pos, final double[] x, final double[] y, final double[] targetX,
+			final double[] targetY, final StressKernel kernel) {
+		final QuadTree tree = m_tree;
+		final double[] pivotDistances = kernel.m_pivotDistances;
+		final int[] slots = kernel.m_slots;
+		final int[] blocks = kernel.m_blocks;
+		final int[] marks = kernel.m_marks;
+		final int[] stack = kernel.m_stack;
+		// the distances to the pivots, those of pivot neighbors are not stored
+		Arrays.fill(pivotDistances, Double.POSITIVE_INFINITY);
+		for (int i = 0, e = m_stressData.getTerms(pos, slots, blocks); i < e; i++) {
+			pivotDistances[slots[i]] = m_blockDistances[slots[i]][blocks[i]];
+		}
+		if (m_pivotSlots[pos] >= 0) {
+			pivotDistances[m_pivotSlots[pos]] = 0;
+		}
+		final double[] distances = m_graph.getWeights(pos);
+		final int[] positions = m_graph.getNeighbors(pos);
+		final double refX = x[pos];
+		final double refY = y[pos];
+		kernel.clear();
+		// neighbor terms are exact and excluded from the far field
+		for (int i = 0; i < positions.length; i++) {
+			final int index = positions[i];
+			marks[index] = pos;
+			if (m_pivotSlots[index] >= 0) {
+				pivotDistances[m_pivotSlots[index]] = Math.min(pivotDistances[m_pivotSlots[index]], distances[i]);
+			}
+			kernel.voteCell(refX, refY, x[index], y[index], 1, distances[i]);
+		}
+		final int rank = tree.m_rank[pos];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			final int node = stack[--top];
+			final int from = tree.m_from[node];
+			final int to = tree.m_to[node];
+			final boolean inside = from <= rank && rank < to;
+			if (tree.m_firstChild[node] < 0) {
+				if (!inside) {
+					voteFarField(pos, refX, refY, tree.m_centerX[node], tree.m_centerY[node], from, to, kernel);
+				} else {
+					// the vertices that coincide with the current one vote one by one
+					for (int i = from; i < to; i++) {
+						voteFarField(pos, refX, refY, x[tree.m_order[i]], y[tree.m_order[i]], i, i + 1, kernel);
+					}
+				}
+			} else if (!inside
+					&& tree.m_width[node] < THETA
+							* StressKernel.distance(refX, refY, tree.m_centerX[node], tree.m_centerY[node])) {
+				voteFarField(pos, refX, refY, tree.m_centerX[node], tree.m_centerY[node], from, to, kernel);
+			} else {
+				for (int child = tree.m_firstChild[node], e = child + tree.m_numOfChildren[node]; child < e; child++) {
+					stack[top++] = child;
+				}
+			}
+		}
+		final double weight = kernel.getWeight();
+		targetX[pos] = weight > 0 ? kernel.getSumX() / weight : refX;
+		targetY[pos] = weight > 0 ? kernel.getSumY() / weight : refY;
+	}
+
+	/**
+	 * Votes for the vertices of a range of the Morton order at the given
+	 * position, skipping the vertex itself and single neighbors.
+	 */
+	private void voteFarField(final int pos, final double refX, final double refY, final double voteX,
+			final double voteY, final int from, final int to, final StressKernel kernel) {
+		final int representative = m_tree.m_order[(from + to) >>> 1];
+		if (to - from == 1 && (representative == pos || kernel.m_marks[representative] == pos)) {
+			return;
+		}
+		final int cluster = m_clusters[representative];
+		if (cluster < 0) {
+			return;
+		}
+		final double distance = kernel.m_pivotDistances[cluster] + m_clusterDistances[representative];
+		if (distance > 0 && distance != Double.POSITIVE_INFINITY) {
+			kernel.voteCell(refX, refY, voteX, voteY, to - from, distance);
+		}
+	}
+
+	/**
+	 * Relaxes a range of chunks, splitting it until a single chunk is left,
+	 * and stores the sparse stress measured in each chunk.
+	 */
+	private final class SweepTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] m_x;
+
+		private final double[] m_y;
+
+		private final double[] m_targetX;
+
+		private final double[] m_targetY;
+
+		private final double[] m_partial;
+
+		private final int m_from;
+
+		private final int m_to;
+
+		SweepTask(final double[] x, final double[] y, final double[] targetX, final double[] targetY,
+				final double[] partial, final int from, final int to) {
+			m_x = x;
+			m_y = y;
+			m_targetX = targetX;
+			m_targetY = targetY;
+			m_partial = partial;
+			m_from = from;
+			m_to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_to - m_from > 1) {
+				final int mid = (m_from + m_to) >>> 1;
+				invokeAll(new SweepTask(m_x, m_y, m_targetX, m_targetY, m_partial, m_from, mid),
+						new SweepTask(m_x, m_y, m_targetX, m_targetY, m_partial, mid, m_to));
+				return;
+			}
+			final StressKernel kernel = m_kernels.get();
+			double stress = 0;
+			for (int pos = m_chunkStarts[m_from], end = m_chunkStarts[m_to]; pos < end; pos++) {
+				stress += update(pos, m_x, m_y, m_targetX, m_targetY, kernel);
+			}
+			m_partial[m_from] = stress;
+		}
+	}
+
+	/**
+	 * Moves the vertices of a range of chunks of the visiting order by
+	 * gradient steps, splitting the range until a single chunk is left. The
+	 * chunks are slices of equal length, the random order balances their
+	 * terms.
+	 */
+	private final class GradientTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] m_order;
+
+		private final double[] m_x;
+
+		private final double[] m_y;
+
+		private final double m_eta;
+
+		private final double[] m_partial;
+
+		private final double[] m_moves;
+
+		private final int m_from;
+
+		private final int m_to;
+
+		GradientTask(final int[] order, final double[] x, final double[] y, final double eta, final double[] partial,
+				final double[] moves, final int from, final int to) {
+			m_order = order;
+			m_x = x;
+			m_y = y;
+			m_eta = eta;
+			m_partial = partial;
+			m_moves = moves;
+			m_from = from;
+			m_to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_to - m_from > 1) {
+				final int mid = (m_from + m_to) >>> 1;
+				invokeAll(new GradientTask(m_order, m_x, m_y, m_eta, m_partial, m_moves, m_from, mid),
+						new GradientTask(m_order, m_x, m_y, m_eta, m_partial, m_moves, mid, m_to));
+				return;
+			}
+			final long n = m_order.length;
+			final int chunks = m_partial.length;
+			m_partial[m_from] = descend(m_order, (int) (n * m_from / chunks), (int) (n * (m_from + 1) / chunks), m_x,
+					m_y, m_eta, m_kernels.get(), m_moves, m_from);
+		}
+	}
+
+	private double[][] getBlockDistances(final StressData stressData) {
+		final DoubleArray[] blockDistances = stressData.getBlockDistances();
+		final double[][] distances = new double[blockDistances.length][];
+		for (int i = 0; i < blockDistances.length; i++) {
+			distances[i] = blockDistances[i].getData();
+		}
+		return distances;
+	}
+
+	/**
+	 * Derives the unnormalized weight of each distance block of each pivot from
+	 * its hanging pointer.
+	 * 
+	 * @param stressData
+	 *            the stress data
+	 * @return per pivot slot the weight of each distance block
+	 */
+	private double[][] calcBlockWeights(final StressData stressData) {
+		final DoubleArray[] blockDistances = stressData.getBlockDistances();
+		final IntArray[] blockHanging = stressData.getBlockHanging();
+		final double[][] weights = new double[blockDistances.length][];
+		for (int i = 0; i < blockDistances.length; i++) {
+			final double[] distance = blockDistances[i].getData();
+			final int[] hanging = blockHanging[i].getData();
+			final double[] weight = new double[blockDistances[i].size()];
+			for (int j = 0; j < weight.length; j++) {
+				weight[j] = hanging[j] / (distance[j] * distance[j]);
+			}
+			weights[i] = weight;
+		}
+		return weights;
+	}
+
+	private void normalizeWeights(final Graph g, final StressData stressData, final double[][] blockWeights) {
+		final double[] normalization = stressData.getNormalization();
+		final int[] slot = new int[stressData.getPivots().length];
+		final int[] block = new int[stressData.getPivots().length];
+		for (int i = 0; i < normalization.length; i++) {
 			double totalWeight = 0;
-			double[] w = weight.getData();
-			for (int i = 0; i < weight.size(); i++) {
-				totalWeight += w[i];
+			for (int j = 0, e = stressData.getTerms(i, slot, block); j < e; j++) {
+				totalWeight += blockWeights[slot[j]][block[j]];
+			}
+			final double[] distance = g.getWeights(i);
+			for (int j = 0; j < distance.length; j++) {
+				totalWeight += 1d / (distance[j] * distance[j]);
 			}
-			for (int i = 0; i < weight.size(); i++) {
-				w[i] /= totalWeight;
+			normalization[i] = 1d / totalWeight;
+		}
+	}
+
+	private static double avgEdgeWeight(final Graph g) {
+		double sum = 0;
+		long count = 0;
+		for (int i = 0; i < g.n(); i++) {
+			for (final double weight : g.getWeights(i)) {
+				sum += weight;
+				++count;
 			}
 		}
+		return count > 0 ? sum / count : 1;
 	}
 
-	private void scaleAvgEdgeLength(final Graph g, final double[] layout) {
+	private void scaleAvgEdgeLength(final Graph g, final double[] x, final double[] y) {
 		double avgDist = 0;
 		double avgCost = 0;
 		final int m = g.m();
@@ -152,39 +1187,25 @@ public final class SparseStressModel {
 			final double[] weight = g.getWeights(i);
 			for (int j = 0; j < index.length; j++) {
 				if (index[j] > i) {
-					avgDist += calcEucDist(layout, i, index[j]) / m;
+					avgDist += StressKernel.distance(x[i], y[i], x[index[j]], y[index[j]]) / m;
 					avgCost += weight[j] / m;
 				}
 			}
 		}
 		double scaleFactor = avgCost / avgDist;
-		for (int i = 0; i < 2 * g.n(); i++) {
-			layout[i] *= scaleFactor;
-		}
-		removeOverlaps(layout, avgCost);
-	}
-
-	private double calcEucDist(final double[] layout, final int i, final int j) {
-		int index1 = i << 1;
-		int index2 = j << 1;
-		return calcEucDist(layout[index1], layout[index1 + 1], layout[index2], layout[index2 + 1]);
-	}
-
-	private double calcEucDist(final double x1, final double y1, final double x2, final double y2) {
-		double diff1 = x1 - x2;
-		double diff2 = y1 - y2;
-		final double eucDist = Math.sqrt(diff1 * diff1 + diff2 * diff2);
-		if (Double.isNaN(eucDist)) {
-			return 0;
+		for (int i = 0; i < g.n(); i++) {
+			x[i] *= scaleFactor;
+			y[i] *= scaleFactor;
 		}
-		return eucDist;
+		removeOverlaps(x, y, avgCost);
 	}
 
-	private void removeOverlaps(final double[] layout, final double avgCost) {
+	private void removeOverlaps(final double[] x, final double[] y, final double avgCost) {
 		// move overlapping nodes
 		final Random rand = new Random(OVERLAP_SEED);
-		for (int i = 0; i < layout.length; i++) {
-			layout[i] += avgCost / 1000 * (rand.nextDouble() - 0.5);
+		for (int i = 0; i < x.length; i++) {
+			x[i] += avgCost / 1000 * (rand.nextDouble() - 0.5);
+			y[i] += avgCost / 1000 * (rand.nextDouble() - 0.5);
 		}
 	}
 }
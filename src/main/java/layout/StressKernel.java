@@ -0,0 +1,251 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package layout;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates the terms of a single vertex on a structure-of-arrays layout, the
+ * terms are streamed one by one without being gathered into temporary arrays.
+ * Terms whose endpoints coincide are masked, as their direction is undefined.
+ * Each thread needs its own kernel.
+ */
+final class StressKernel {
+
+	/** the pivot slots of the current vertex */
+	final int[] m_slots;
+
+	/** the distance blocks of the current vertex */
+	final int[] m_blocks;
+
+	/** with a far field, the graph distance of the current vertex to each pivot */
+	final double[] m_pivotDistances;
+
+	/** with a far field, the last vertex each vertex was marked as neighbor of */
+	final int[] m_marks;
+
+	/** with a far field, the nodes of the quadtree still to visit */
+	final int[] m_stack;
+
+	private double m_weight;
+
+	private double m_sumX;
+
+	private double m_sumY;
+
+	private double m_stress;
+
+	private double m_x;
+
+	private double m_y;
+
+	/**
+	 * @param numOfPivots
+	 *            the number of pivots
+	 */
+	StressKernel(final int numOfPivots) {
+		m_slots = new int[numOfPivots];
+		m_blocks = new int[numOfPivots];
+		m_pivotDistances = null;
+		m_marks = null;
+		m_stack = null;
+	}
+
+	/**
+	 * @param numOfPivots
+	 *            the number of pivots
+	 * @param numOfVertices
+	 *            the number of vertices of the far field
+	 */
+	StressKernel(final int numOfPivots, final int numOfVertices) {
+		m_slots = new int[numOfPivots];
+		m_blocks = new int[numOfPivots];
+		m_pivotDistances = new double[numOfPivots];
+		m_marks = new int[numOfVertices];
+		Arrays.fill(m_marks, -1);
+		m_stack = new int[QuadTree.STACK_SIZE];
+	}
+
+	/**
+	 * Starts a new vertex.
+	 */
+	void clear() {
+		m_sumX = 0;
+		m_sumY = 0;
+		m_stress = 0;
+		m_weight = 0;
+	}
+
+	/**
+	 * Adds the weighted position a term votes for the vertex at (refX, refY),
+	 * i.e., the position at the target distance from (voteX, voteY) in the
+	 * direction of the vertex.
+	 */
+	void vote(final double refX, final double refY, final double voteX, final double voteY, final double weight,
+			final double distance) {
+		final double euclideanDistance = distance(refX, refY, voteX, voteY);
+		if (euclideanDistance != 0) {
+			final double scale = distance / euclideanDistance;
+			m_sumX += weight * (voteX + scale * (refX - voteX));
+			m_sumY += weight * (voteY + scale * (refY - voteY));
+		}
+	}
+
+	/**
+	 * Adds the vote of a pivot term like
+	 * {@link #vote(double, double, double, double, double, double)}, and its
+	 * squared relative error to the sparse stress of the vertex.
+	 */
+	void votePivot(final double refX, final double refY, final double voteX, final double voteY,
+			final double weight, final double distance) {
+		final double euclideanDistance = distance(refX, refY, voteX, voteY);
+		if (euclideanDistance != 0) {
+			final double scale = distance / euclideanDistance;
+			m_sumX += weight * (voteX + scale * (refX - voteX));
+			m_sumY += weight * (voteY + scale * (refY - voteY));
+		}
+		if (distance > 0) {
+			final double addend = euclideanDistance / distance - 1;
+			m_stress += addend * addend;
+		}
+	}
+
+	/**
+	 * Adds the vote of a group of vertices at (voteX, voteY) that all have the
+	 * same target distance, weighted by their number, and their squared
+	 * relative errors to the stress of the vertex.
+	 */
+	void voteCell(final double refX, final double refY, final double voteX, final double voteY, final int count,
+			final double distance) {
+		final double weight = count / (distance * distance);
+		final double euclideanDistance = distance(refX, refY, voteX, voteY);
+		if (euclideanDistance != 0) {
+			final double scale = distance / euclideanDistance;
+			m_sumX += weight * (voteX + scale * (refX - voteX));
+			m_sumY += weight * (voteY + scale * (refY - voteY));
+		}
+		m_weight += weight;
+		final double addend = euclideanDistance / distance - 1;
+		m_stress += count * addend * addend;
+	}
+
+	/**
+	 * @return the total weight of the cells voted for
+	 */
+	double getWeight() {
+		return m_weight;
+	}
+
+	double getSumX() {
+		return m_sumX;
+	}
+
+	double getSumY() {
+		return m_sumY;
+	}
+
+	/**
+	 * Adds the squared relative error of a pivot term of the vertex at (refX,
+	 * refY) to its sparse stress without voting.
+	 */
+	void measurePivot(final double refX, final double refY, final double x, final double y, final double distance) {
+		if (distance > 0) {
+			final double addend = distance(refX, refY, x, y) / distance - 1;
+			m_stress += addend * addend;
+		}
+	}
+
+	/**
+	 * Starts a sequence of gradient steps of a vertex at (x, y).
+	 */
+	void moveFrom(final double x, final double y) {
+		m_x = x;
+		m_y = y;
+		m_stress = 0;
+	}
+
+	/**
+	 * Moves the vertex towards the target distance of a term, only the vertex
+	 * is moved.
+	 * 
+	 * @param mu
+	 *            the step size, where one satisfies the term exactly
+	 */
+	void step(final double voteX, final double voteY, final double mu, final double distance) {
+		final double euclideanDistance = distance(m_x, m_y, voteX, voteY);
+		if (euclideanDistance != 0) {
+			final double scale = mu * (euclideanDistance - distance) / euclideanDistance;
+			m_x -= scale * (m_x - voteX);
+			m_y -= scale * (m_y - voteY);
+		}
+	}
+
+	/**
+	 * Takes a step like {@link #step(double, double, double, double)}, and
+	 * adds the squared relative error of the term before the step to the
+	 * sparse stress of the vertex.
+	 */
+	void stepPivot(final double voteX, final double voteY, final double mu, final double distance) {
+		final double euclideanDistance = distance(m_x, m_y, voteX, voteY);
+		if (euclideanDistance != 0) {
+			final double scale = mu * (euclideanDistance - distance) / euclideanDistance;
+			m_x -= scale * (m_x - voteX);
+			m_y -= scale * (m_y - voteY);
+		}
+		if (distance > 0) {
+			final double addend = euclideanDistance / distance - 1;
+			m_stress += addend * addend;
+		}
+	}
+
+	/**
+	 * @return the x-coordinate reached by the gradient steps
+	 */
+	double getX() {
+		return m_x;
+	}
+
+	/**
+	 * @return the y-coordinate reached by the gradient steps
+	 */
+	double getY() {
+		return m_y;
+	}
+
+	/**
+	 * @return the sparse stress of the pivot terms of the vertex, measured at
+	 *         its position before the update
+	 */
+	double getStress() {
+		return m_stress;
+	}
+
+	/**
+	 * @return the Euclidean distance of two positions
+	 */
+	static double distance(final double x1, final double y1, final double x2, final double y2) {
+		final double diffX = x1 - x2;
+		final double diffY = y1 - y2;
+		final double euclideanDistance = Math.sqrt(diffX * diffX + diffY * diffY);
+		if (Double.isNaN(euclideanDistance)) {
+			return 0;
+		}
+		return euclideanDistance;
+	}
+}
@@ -49,10 +49,16 @@ public final class MaxMinSSSPSampler extends Sampler {
 		final int size = clusterToProcess.size();
 		// the pivots
 		final int[] pivots = new int[numOfPivots];
-		// the distance matrix
-		final double[][] distanceMatrix = new double[g.n()][numOfPivots];
 		// the index of the current pivot node
 		final int[] cData = clusterToProcess.getData();
+		// the distance matrix, rows of other clusters are never touched
+		final double[][] distanceMatrix = new double[g.n()][];
+		for (int j = 0; j < size; j++) {
+			distanceMatrix[cData[j]] = new double[numOfPivots];
+		}
+		// the shortest-path search, reset after every source
+		final Heap heap = new Heap(g.n());
+		final boolean marked[] = new boolean[g.n()];
 		// draw initial point at random
 		int pivotIndex = cData[m_rand.nextInt(size)];
 		// the minimum distances of a node to one of the previously chosen pivot
@@ -63,7 +69,11 @@ public final class MaxMinSSSPSampler extends Sampler {
 		for (int i = 0; i < numOfPivots; i++) {
 			pivots[i] = pivotIndex;
 			calcSingleSourceShortestPath(g, i, pivotIndex, distanceMatrix,
-					globalClustering);
+					globalClustering, heap, marked);
+			for (int j = 0; j < size; j++) {
+				heap.reset(cData[j]);
+				marked[cData[j]] = false;
+			}
 			// update the pivot and the minDistance array ... to ensure the
 			// correctness set minDistance of the pivot node to zero
 			minDistances[pivotIndex] = 0;
@@ -81,9 +91,8 @@ public final class MaxMinSSSPSampler extends Sampler {
 
 	private void calcSingleSourceShortestPath(final Graph g,
 			final int pivotPosition, final int sourceIndex,
-			final double[][] distance, final int[] globalClustering) {
-		final Heap heap = new Heap(g.n());
-		final boolean marked[] = new boolean[g.n()];
+			final double[][] distance, final int[] globalClustering,
+			final Heap heap, final boolean[] marked) {
 		heap.upsert(sourceIndex, 0);
 		while (!heap.isEmpty()) {
 			// pop minimum distance node
@@ -0,0 +1,210 @@
+/*
+ * This file is part of sparse-stress.
+ *
+ * Copyright (C) 2016-2017 Mark Ortmann (University of Konstanz)
+ *
+ * sparse-stress is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * sparse-stress is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with sparse-stress.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sampling;
+
+import graph.Graph;
+import helpers.Options;
+import helpers.StressFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import data_structures.IntArray;
+
+/**
+ * Splits the graph into regions and samples the pivots of each region
+ * concurrently, every region by its own sampler of the configured style. The
+ * regions are the breadth-first Voronoi cells of randomly drawn centers; each
+ * gets a share of the pivots proportional to its size and a seed derived from
+ * the given one, so the result does not depend on the number of threads.
+ */
+public final class PartitionedSampler {
+
+	private final Random m_rand;
+
+	public PartitionedSampler(final Options options) {
+		m_rand = new Random(options.getSeed());
+	}
+
+	/**
+	 * @return the pivots of all regions, interleaved such that every prefix
+	 *         covers the regions evenly
+	 */
+	public int[] samplePivots(final Options options, final Graph g) {
+		final int numOfPivots = Math.min(options.getNumOfPiv(), g.n());
+		final int numOfRegions = Math.min(options.getNumOfPartitions(),
+				numOfPivots);
+		final int[] regions = partition(g, numOfRegions);
+		final IntArray[] members = new IntArray[numOfRegions];
+		for (int r = 0; r < numOfRegions; r++) {
+			members[r] = new IntArray(g.n() / numOfRegions + 1);
+		}
+		for (int i = 0; i < g.n(); i++) {
+			members[regions[i]].add(i);
+		}
+		final int[] quotas = getQuotas(numOfPivots, members, g.n());
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.min(numOfRegions, options.getNumOfThreads()));
+		try {
+			final List<Future<int[]>> samples = new ArrayList<Future<int[]>>();
+			for (int r = 0; r < numOfRegions; r++) {
+				final Options regionOptions = new Options(options);
+				regionOptions.setSeed(m_rand.nextLong() & Long.MAX_VALUE);
+				final IntArray region = members[r];
+				final int quota = quotas[r];
+				samples.add(executor.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() {
+						return StressFactory.createSampler(regionOptions)
+								.samplePivots(quota, g, region, regions);
+					}
+				}));
+			}
+			final int[][] pivots = new int[numOfRegions][];
+			for (int r = 0; r < numOfRegions; r++) {
+				pivots[r] = get(samples.get(r));
+			}
+			return interleave(pivots, numOfPivots);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Grows the regions breadth-first from distinct random centers at the
+	 * same pace. A component without a center is added to the smallest region
+	 * so far.
+	 * 
+	 * @return the region of each vertex
+	 */
+	private int[] partition(final Graph g, final int numOfRegions) {
+		final int n = g.n();
+		final int[] regions = new int[n];
+		Arrays.fill(regions, -1);
+		final int[] sizes = new int[numOfRegions];
+		final int[] queue = new int[n];
+		int tail = 0;
+		for (int r = 0; r < numOfRegions; r++) {
+			int center = m_rand.nextInt(n);
+			while (regions[center] >= 0) {
+				center = m_rand.nextInt(n);
+			}
+			regions[center] = r;
+			++sizes[r];
+			queue[tail++] = center;
+		}
+		int head = 0;
+		int next = 0;
+		while (true) {
+			while (head < tail) {
+				final int v = queue[head++];
+				for (final int u : g.getNeighbors(v)) {
+					if (regions[u] < 0) {
+						regions[u] = regions[v];
+						++sizes[regions[v]];
+						queue[tail++] = u;
+					}
+				}
+			}
+			while (next < n && regions[next] >= 0) {
+				++next;
+			}
+			if (next == n) {
+				return regions;
+			}
+			int smallest = 0;
+			for (int r = 1; r < numOfRegions; r++) {
+				if (sizes[r] < sizes[smallest]) {
+					smallest = r;
+				}
+			}
+			regions[next] = smallest;
+			++sizes[smallest];
+			queue[tail++] = next;
+		}
+	}
+
+	/**
+	 * Gives every region one pivot and distributes the others proportionally
+	 * to the sizes by the largest remainder, a region gets at most as many
+	 * pivots as it has vertices.
+	 */
+	private static int[] getQuotas(final int numOfPivots,
+			final IntArray[] members, final int n) {
+		final int numOfRegions = members.length;
+		final int[] quotas = new int[numOfRegions];
+		final double[] remainders = new double[numOfRegions];
+		final int spare = numOfPivots - numOfRegions;
+		int assigned = 0;
+		for (int r = 0; r < numOfRegions; r++) {
+			final double share = (double) spare * members[r].size() / n;
+			quotas[r] = Math.min(1 + (int) share, members[r].size());
+			remainders[r] = share - (int) share;
+			assigned += quotas[r];
+		}
+		while (assigned < numOfPivots) {
+			int best = -1;
+			for (int r = 0; r < numOfRegions; r++) {
+				if (quotas[r] < members[r].size()
+						&& (best < 0 || remainders[r] > remainders[best])) {
+					best = r;
+				}
+			}
+			++quotas[best];
+			remainders[best] -= 1;
+			++assigned;
+		}
+		return quotas;
+	}
+
+	private static int[] interleave(final int[][] pivots, final int numOfPivots) {
+		final int[] merged = new int[numOfPivots];
+		int pos = 0;
+		for (int k = 0; pos < numOfPivots; k++) {
+			for (int r = 0; r < pivots.length; r++) {
+				if (k < pivots[r].length) {
+					merged[pos++] = pivots[r][k];
+				}
+			}
+		}
+		return merged;
+	}
+
+	private static int[] get(final Future<int[]> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"interrupted while waiting for the pivots", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}